@@ -0,0 +1,31 @@
+package com.rdpk.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rdpk.device.domain.Device;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(DeviceCacheProperties.class)
+public class CacheConfig {
+    
+    /**
+     * Bounded read-through cache for devices by ID.
+     * 
+     * <p>Statistics are recorded so hit/miss/eviction counts are exported as
+     * {@code cache_gets_total{cache="devices"}} and {@code cache_evictions_total{cache="devices"}}.
+     */
+    @Bean
+    public Cache<Long, Device> deviceCache(DeviceCacheProperties properties, MeterRegistry meterRegistry) {
+        Cache<Long, Device> cache = Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfterWrite(properties.expireAfterWrite())
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "devices");
+    }
+}
@@ -0,0 +1,34 @@
+package com.rdpk.config;
+
+import com.rdpk.device.exception.DeviceOverloadedException;
+import com.rdpk.device.support.AdaptiveConcurrencyLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ConcurrencyLimitProperties.class)
+public class ConcurrencyLimitConfig {
+    
+    /**
+     * Limits in-flight device database operations; operations over the limit fail with
+     * {@link DeviceOverloadedException}, answered with 503 and {@code Retry-After}.
+     */
+    @Bean
+    public AdaptiveConcurrencyLimiter deviceConcurrencyLimiter(
+            ConcurrencyLimitProperties properties,
+            MeterRegistry meterRegistry) {
+        return new AdaptiveConcurrencyLimiter(
+                properties.enabled(),
+                properties.initialLimit(),
+                properties.minLimit(),
+                properties.maxLimit(),
+                properties.tolerance(),
+                properties.smoothing(),
+                properties.baselineWindow(),
+                () -> new DeviceOverloadedException("Too many concurrent device operations", properties.retryAfter()),
+                meterRegistry
+        );
+    }
+}
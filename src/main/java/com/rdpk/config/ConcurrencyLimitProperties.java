@@ -0,0 +1,31 @@
+package com.rdpk.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Adaptive limit of in-flight device database operations.
+ *
+ * @param enabled Whether operations over the limit are rejected
+ * @param initialLimit Limit at startup, before latency was measured
+ * @param minLimit Lowest limit the algorithm may shrink to
+ * @param maxLimit Highest limit the algorithm may grow to
+ * @param tolerance Latency over baseline accepted before the limit shrinks, e.g. 1.5 = 50% slower
+ * @param smoothing Share of each computed limit applied per update (0-1); lower reacts slower
+ * @param baselineWindow Number of operations averaged into the baseline latency
+ * @param retryAfter {@code Retry-After} sent with 503 responses for rejected operations
+ */
+@ConfigurationProperties(prefix = "devices.concurrency-limit")
+public record ConcurrencyLimitProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("20") int initialLimit,
+        @DefaultValue("5") int minLimit,
+        @DefaultValue("200") int maxLimit,
+        @DefaultValue("1.5") double tolerance,
+        @DefaultValue("0.2") double smoothing,
+        @DefaultValue("500") int baselineWindow,
+        @DefaultValue("1s") Duration retryAfter
+) {
+}
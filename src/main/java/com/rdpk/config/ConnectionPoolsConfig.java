@@ -0,0 +1,117 @@
+package com.rdpk.config;
+
+import com.rdpk.device.support.ReadRouting;
+import com.rdpk.device.support.RoutingConnectionFactory;
+import com.rdpk.device.support.Workload;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Option;
+import org.springframework.boot.actuate.metrics.r2dbc.ConnectionPoolMetrics;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.r2dbc.ConnectionFactoryBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+@EnableConfigurationProperties(ConnectionPoolsProperties.class)
+public class ConnectionPoolsConfig {
+    
+    // Same option as spring.r2dbc.properties.statementTimeout
+    private static final Option<Duration> STATEMENT_TIMEOUT = Option.valueOf("statementTimeout");
+    
+    /**
+     * Connection factory used by every repository and the transaction manager, replacing
+     * the single auto-configured pool.
+     * 
+     * <p>Holds one pool per workload class on the primary (connection settings from
+     * {@code spring.r2dbc.*}, pool settings from {@code devices.pools.*}), plus OLTP and
+     * query pools on the replica when {@code devices.read-replica.enabled=true}. Pool
+     * utilization is exported as {@code r2dbc_pool_*{name}} and acquire waits as
+     * {@code r2dbc_pool_acquire_seconds{name,outcome}}, with names {@code oltp}, {@code query},
+     * {@code bulk}, {@code replica-oltp} and {@code replica-query}.
+     * 
+     * <p>Each pool may override the statement timeout, so exports, imports and
+     * reconciliation on the bulk pool are not cancelled at the OLTP limit.
+     * 
+     * <p>Replica reads fall back to the primary while the {@code replica} circuit breaker is open.
+     */
+    @Bean(destroyMethod = "dispose")
+    public RoutingConnectionFactory connectionFactory(
+            R2dbcProperties r2dbcProperties,
+            ConnectionPoolsProperties poolsProperties,
+            ReadReplicaProperties replicaProperties,
+            CircuitBreakerRegistry circuitBreakerRegistry,
+            MeterRegistry meterRegistry) {
+        Map<RoutingConnectionFactory.Route, ConnectionPool> pools = new LinkedHashMap<>();
+        for (Workload workload : Workload.values()) {
+            RoutingConnectionFactory.Route route = new RoutingConnectionFactory.Route(ReadRouting.Target.PRIMARY, workload);
+            ConnectionPoolsProperties.Pool pool = poolsProperties.forWorkload(workload);
+            ConnectionFactory primary = connectionFactory(r2dbcProperties.getUrl(),
+                    r2dbcProperties.getUsername(), r2dbcProperties.getPassword(), r2dbcProperties, pool);
+            pools.put(route, pool(route.poolName(), primary, pool));
+        }
+        if (replicaProperties.enabled()) {
+            // Bulk work never reads from the replica, so it gets no replica pool
+            for (Workload workload : List.of(Workload.OLTP, Workload.QUERY)) {
+                RoutingConnectionFactory.Route route = new RoutingConnectionFactory.Route(ReadRouting.Target.REPLICA, workload);
+                ConnectionPoolsProperties.Pool pool = poolsProperties.forWorkload(workload);
+                ConnectionFactory replica = connectionFactory(replicaProperties.url(),
+                        replicaProperties.username() != null ? replicaProperties.username() : r2dbcProperties.getUsername(),
+                        replicaProperties.password() != null ? replicaProperties.password() : r2dbcProperties.getPassword(),
+                        r2dbcProperties, pool);
+                pools.put(route, pool(route.poolName(), replica, pool));
+            }
+        }
+        pools.forEach((route, pool) ->
+                new ConnectionPoolMetrics(pool, route.poolName(), Tags.empty()).bindTo(meterRegistry));
+        return new RoutingConnectionFactory(pools, circuitBreakerRegistry.circuitBreaker("replica"), meterRegistry);
+    }
+    
+    private static ConnectionFactory connectionFactory(String url, String username, String password,
+                                                       R2dbcProperties r2dbcProperties,
+                                                       ConnectionPoolsProperties.Pool pool) {
+        return ConnectionFactoryBuilder.withUrl(url)
+                .username(username)
+                .password(password)
+                .configure(options -> {
+                    r2dbcProperties.getProperties()
+                            .forEach((key, value) -> options.option(Option.valueOf(key), value));
+                    if (pool.statementTimeout() != null) {
+                        options.option(STATEMENT_TIMEOUT, pool.statementTimeout());
+                    }
+                })
+                .build();
+    }
+    
+    private static ConnectionPool pool(String name, ConnectionFactory connectionFactory,
+                                       ConnectionPoolsProperties.Pool pool) {
+        ConnectionPoolConfiguration.Builder builder = ConnectionPoolConfiguration.builder(connectionFactory)
+                .name(name)
+                .initialSize(pool.initialSize())
+                .minIdle(pool.minIdle())
+                .maxSize(pool.maxSize())
+                .maxAcquireTime(pool.maxAcquireTime())
+                .maxIdleTime(pool.maxIdleTime())
+                .validationDepth(pool.validationDepth());
+        if (pool.maxCreateConnectionTime() != null) {
+            builder.maxCreateConnectionTime(pool.maxCreateConnectionTime());
+        }
+        if (pool.maxLifeTime() != null) {
+            builder.maxLifeTime(pool.maxLifeTime());
+        }
+        if (pool.validationQuery() != null) {
+            builder.validationQuery(pool.validationQuery());
+        }
+        return new ConnectionPool(builder.build());
+    }
+}
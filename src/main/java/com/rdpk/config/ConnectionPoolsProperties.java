@@ -0,0 +1,59 @@
+package com.rdpk.config;
+
+import com.rdpk.device.support.Workload;
+import io.r2dbc.spi.ValidationDepth;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Connection pools per workload class (see {@link Workload}). The replica, when enabled,
+ * gets OLTP and query pools with the same settings.
+ *
+ * @param oltp Pool for single-device lookups and writes
+ * @param query Pool for list pages and counts
+ * @param bulk Pool for exports, imports, batch writes and maintenance
+ */
+@ConfigurationProperties(prefix = "devices.pools")
+public record ConnectionPoolsProperties(
+        @DefaultValue Pool oltp,
+        @DefaultValue Pool query,
+        @DefaultValue Pool bulk
+) {
+    
+    /**
+     * @param initialSize Connections opened when the pool starts
+     * @param minIdle Idle connections kept open even without load
+     * @param maxSize Maximum number of connections
+     * @param maxAcquireTime Maximum wait for a free connection before the acquire fails
+     * @param maxCreateConnectionTime Maximum time to open a new connection (unset = no limit)
+     * @param statementTimeout Server-side statement_timeout of the pool's connections; 0 disables it
+     *        (unset = {@code spring.r2dbc.properties.statementTimeout})
+     * @param maxIdleTime Idle time after which a connection is closed
+     * @param maxLifeTime Age after which a connection is replaced (unset = never)
+     * @param validationQuery Query run before handing out a connection (unset = driver-level check)
+     * @param validationDepth LOCAL checks the connection state only; REMOTE also asks the server
+     */
+    public record Pool(
+            @DefaultValue("1") int initialSize,
+            @DefaultValue("0") int minIdle,
+            @DefaultValue("10") int maxSize,
+            @DefaultValue("3s") Duration maxAcquireTime,
+            Duration maxCreateConnectionTime,
+            Duration statementTimeout,
+            @DefaultValue("30m") Duration maxIdleTime,
+            Duration maxLifeTime,
+            String validationQuery,
+            @DefaultValue("LOCAL") ValidationDepth validationDepth
+    ) {
+    }
+    
+    public Pool forWorkload(Workload workload) {
+        return switch (workload) {
+            case OLTP -> oltp;
+            case QUERY -> query;
+            case BULK -> bulk;
+        };
+    }
+}
@@ -0,0 +1,19 @@
+package com.rdpk.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Sizing of the in-process device cache used by {@code DeviceService.getDeviceById}.
+ *
+ * @param maximumSize Maximum number of devices kept in memory
+ * @param expireAfterWrite Time after which a cached device is reloaded from the database
+ */
+@ConfigurationProperties(prefix = "devices.cache")
+public record DeviceCacheProperties(
+        @DefaultValue("10000") long maximumSize,
+        @DefaultValue("5m") Duration expireAfterWrite
+) {
+}
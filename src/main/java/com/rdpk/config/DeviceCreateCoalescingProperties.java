@@ -0,0 +1,21 @@
+package com.rdpk.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Opt-in coalescing of concurrent {@code DeviceService.createDevice} calls into multi-row INSERTs.
+ *
+ * @param enabled Whether creates are coalesced; when false each create is its own INSERT
+ * @param maxBatchSize Maximum number of devices written by one INSERT
+ * @param maxDelay Maximum time a create waits for its batch to fill before it is flushed
+ */
+@ConfigurationProperties(prefix = "devices.create-coalescing")
+public record DeviceCreateCoalescingProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("64") int maxBatchSize,
+        @DefaultValue("500us") Duration maxDelay
+) {
+}
@@ -2,10 +2,15 @@ package com.rdpk.config;
 
 import com.rdpk.device.dto.ErrorResponse;
 import com.rdpk.device.exception.DeviceDeletionException;
+import com.rdpk.device.exception.DeviceImportException;
 import com.rdpk.device.exception.DeviceNotFoundException;
+import com.rdpk.device.exception.DeviceOverloadedException;
+import com.rdpk.device.exception.DevicePreconditionFailedException;
 import com.rdpk.device.exception.DeviceUpdateException;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -14,6 +19,7 @@ import org.springframework.web.bind.support.WebExchangeBindException;
 import reactor.core.publisher.Mono;
 
 import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.stream.Collectors;
 
@@ -21,6 +27,8 @@ import java.util.stream.Collectors;
 public class GlobalExceptionHandler {
     
     private static final Logger log = LoggerFactory.getLogger(GlobalExceptionHandler.class);
+    // A full bulkhead frees up as soon as one call of its family completes
+    private static final Duration BULKHEAD_RETRY_AFTER = Duration.ofSeconds(1);
     private final Clock clock;
     
     public GlobalExceptionHandler(Clock clock) {
@@ -41,6 +49,13 @@ public class GlobalExceptionHandler {
                 .body(new ErrorResponse("DELETION_ERROR", e.getMessage(), LocalDateTime.now(clock))));
     }
     
+    @ExceptionHandler(DeviceImportException.class)
+    public Mono<ResponseEntity<ErrorResponse>> handleDeviceImportException(DeviceImportException e) {
+        log.error("Device import failed: {}", e.getMessage());
+        return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(new ErrorResponse("IMPORT_ERROR", e.getMessage(), LocalDateTime.now(clock))));
+    }
+    
     @ExceptionHandler(DeviceNotFoundException.class)
     public Mono<ResponseEntity<ErrorResponse>> handleDeviceNotFoundException(DeviceNotFoundException e) {
         log.error("Device not found: {}", e.getMessage());
@@ -48,6 +63,26 @@ public class GlobalExceptionHandler {
                 .body(new ErrorResponse("NOT_FOUND", e.getMessage(), LocalDateTime.now(clock))));
     }
     
+    @ExceptionHandler(DevicePreconditionFailedException.class)
+    public Mono<ResponseEntity<ErrorResponse>> handleDevicePreconditionFailedException(DevicePreconditionFailedException e) {
+        log.error("Device precondition failed: {}", e.getMessage());
+        return Mono.just(ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                .body(new ErrorResponse("PRECONDITION_FAILED", e.getMessage(), LocalDateTime.now(clock))));
+    }
+    
+    @ExceptionHandler(DeviceOverloadedException.class)
+    public Mono<ResponseEntity<ErrorResponse>> handleDeviceOverloadedException(DeviceOverloadedException e) {
+        // Expected under overload and possibly frequent, so not logged as an error
+        log.warn("Device operation rejected: {}", e.getMessage());
+        return overloaded(e.getMessage(), e.getRetryAfter());
+    }
+    
+    @ExceptionHandler(BulkheadFullException.class)
+    public Mono<ResponseEntity<ErrorResponse>> handleBulkheadFullException(BulkheadFullException e) {
+        log.warn("Device operation rejected: {}", e.getMessage());
+        return overloaded(e.getMessage(), BULKHEAD_RETRY_AFTER);
+    }
+    
     @ExceptionHandler(WebExchangeBindException.class)
     public Mono<ResponseEntity<ErrorResponse>> handleValidationException(WebExchangeBindException e) {
         String message = e.getBindingResult().getFieldErrors().stream()
@@ -65,5 +100,12 @@ public class GlobalExceptionHandler {
         return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(new ErrorResponse("INTERNAL_SERVER_ERROR", e.getMessage(), LocalDateTime.now(clock))));
     }
+    
+    private Mono<ResponseEntity<ErrorResponse>> overloaded(String message, Duration retryAfter) {
+        long retryAfterSeconds = Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+        return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(new ErrorResponse("SERVICE_OVERLOADED", message, LocalDateTime.now(clock))));
+    }
 }
 
@@ -0,0 +1,33 @@
+package com.rdpk.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rdpk.device.support.RoutingConnectionFactory;
+import com.rdpk.device.support.Workload;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+import java.util.Set;
+
+@Configuration
+@EnableConfigurationProperties(LoadSheddingProperties.class)
+public class LoadSheddingConfig {
+    
+    /**
+     * Sheds device API requests by priority; pool pressure is read from the OLTP and query
+     * pools that serve the request path (bulk work has its own pool and does not count).
+     */
+    @Bean
+    public LoadSheddingWebFilter loadSheddingWebFilter(
+            LoadSheddingProperties properties,
+            RoutingConnectionFactory connectionFactory,
+            ObjectMapper objectMapper,
+            Clock clock,
+            MeterRegistry meterRegistry) {
+        Set<Workload> requestPath = Set.of(Workload.OLTP, Workload.QUERY);
+        return new LoadSheddingWebFilter(properties, () -> connectionFactory.pendingAcquires(requestPath),
+                objectMapper, clock, meterRegistry);
+    }
+}
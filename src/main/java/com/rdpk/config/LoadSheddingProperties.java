@@ -0,0 +1,29 @@
+package com.rdpk.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Priority-aware load shedding of device API requests (see {@link LoadSheddingWebFilter}).
+ * A request is shed when either signal reaches the limit of its priority; keep the low
+ * limits below the high ones so low-priority requests are shed first.
+ *
+ * @param enabled Whether requests are shed at all
+ * @param highMaxInFlight Device API requests in flight at which writes and lookups by id are shed
+ * @param highMaxPendingAcquires Waiting OLTP/query connection requests at which writes and lookups by id are shed
+ * @param lowMaxInFlight Device API requests in flight at which lists, exports and imports are shed
+ * @param lowMaxPendingAcquires Waiting OLTP/query connection requests at which lists, exports and imports are shed
+ * @param retryAfter {@code Retry-After} sent with 503 responses for shed requests
+ */
+@ConfigurationProperties(prefix = "devices.load-shedding")
+public record LoadSheddingProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("1000") int highMaxInFlight,
+        @DefaultValue("100") int highMaxPendingAcquires,
+        @DefaultValue("200") int lowMaxInFlight,
+        @DefaultValue("10") int lowMaxPendingAcquires,
+        @DefaultValue("1s") Duration retryAfter
+) {
+}
@@ -0,0 +1,139 @@
+package com.rdpk.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rdpk.device.dto.ErrorResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+/**
+ * Sheds device API requests under overload, low-priority requests first.
+ *
+ * <p>Requests are classified by endpoint: single-device writes, claims and lookups by id are
+ * {@link Priority#HIGH}; lists (with their counts) and bulk work (exports, imports, batch
+ * creates and state transitions) are {@link Priority#LOW}. A request is
+ * answered with 503 and {@code Retry-After} without reaching the controller when the device
+ * API requests in flight or the connection requests waiting in the OLTP and query pools
+ * reach the limits of its class. With the low limits below the high ones, list and bulk
+ * floods are shed while single-device writes still get through.
+ *
+ * <p>Other paths (actuator, docs) are never shed. Shed requests are counted as
+ * {@code load.shedding.shed{priority}}, and in-flight requests are published as
+ * {@code load.shedding.in.flight}.
+ */
+public class LoadSheddingWebFilter implements WebFilter, Ordered {
+    
+    static final String API_PATH = "/api/v1/devices";
+    
+    public enum Priority {
+        HIGH,
+        LOW
+    }
+    
+    private final LoadSheddingProperties properties;
+    private final IntSupplier pendingAcquires;
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<Priority, Counter> shed = new EnumMap<>(Priority.class);
+    
+    /**
+     * @param properties Limits per priority
+     * @param pendingAcquires Connection requests currently waiting in the request-path pools
+     * @param objectMapper Writes the error body of shed requests
+     * @param clock Timestamps error bodies
+     * @param meterRegistry Registry for shedding metrics
+     */
+    public LoadSheddingWebFilter(
+            LoadSheddingProperties properties,
+            IntSupplier pendingAcquires,
+            ObjectMapper objectMapper,
+            Clock clock,
+            MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.pendingAcquires = pendingAcquires;
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+        for (Priority priority : Priority.values()) {
+            shed.put(priority, Counter.builder("load.shedding.shed")
+                    .description("Device API requests rejected with 503 by load shedding")
+                    .tag("priority", priority.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        Gauge.builder("load.shedding.in.flight", inFlight, AtomicInteger::get)
+                .description("Device API requests being processed")
+                .register(meterRegistry);
+    }
+    
+    // Runs first, so shed requests cost as little as possible
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+    
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String path = exchange.getRequest().getPath().pathWithinApplication().value();
+        if (!properties.enabled() || !path.startsWith(API_PATH)) {
+            return chain.filter(exchange);
+        }
+        Priority priority = classify(exchange.getRequest(), path.substring(API_PATH.length()));
+        if (overloaded(priority)) {
+            shed.get(priority).increment();
+            return reject(exchange.getResponse());
+        }
+        inFlight.incrementAndGet();
+        return chain.filter(exchange).doFinally(signal -> inFlight.decrementAndGet());
+    }
+    
+    static Priority classify(ServerHttpRequest request, String subPath) {
+        return switch (subPath) {
+            // Lists and their counts; lookups by ids are point reads
+            case "", "/" -> HttpMethod.GET.equals(request.getMethod()) && !request.getQueryParams().containsKey("ids")
+                    ? Priority.LOW
+                    : Priority.HIGH;
+            // Bulk work: one request can touch many devices
+            case "/export", "/import", "/batch", "/state-transitions" -> Priority.LOW;
+            default -> Priority.HIGH;
+        };
+    }
+    
+    private boolean overloaded(Priority priority) {
+        boolean high = priority == Priority.HIGH;
+        return inFlight.get() >= (high ? properties.highMaxInFlight() : properties.lowMaxInFlight())
+                || pendingAcquires.getAsInt() >= (high ? properties.highMaxPendingAcquires() : properties.lowMaxPendingAcquires());
+    }
+    
+    private Mono<Void> reject(ServerHttpResponse response) {
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER,
+                String.valueOf(Math.max(1, (properties.retryAfter().toMillis() + 999) / 1000)));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        ErrorResponse body = new ErrorResponse("SERVICE_OVERLOADED",
+                "Server is overloaded, retry later", LocalDateTime.now(clock));
+        try {
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(objectMapper.writeValueAsBytes(body))));
+        } catch (JsonProcessingException e) {
+            return response.setComplete();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.rdpk.config;
+
+import com.rdpk.device.support.ReadRouting;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ReadReplicaProperties.class)
+public class ReadReplicaConfig {
+    
+    /**
+     * Routes device reads to the replica when {@code devices.read-replica.enabled=true};
+     * otherwise every read targets the primary. The replica's pools are set up with the
+     * others in {@link ConnectionPoolsConfig}.
+     */
+    @Bean
+    public ReadRouting readRouting(ReadReplicaProperties properties) {
+        return new ReadRouting(properties.enabled(), properties.readYourWritesWindow());
+    }
+    
+    @Bean
+    @ConditionalOnProperty(prefix = "devices.read-replica", name = "enabled", havingValue = "true")
+    public ReadYourWritesWebFilter readYourWritesWebFilter(ReadRouting readRouting) {
+        return new ReadYourWritesWebFilter(readRouting);
+    }
+}
@@ -0,0 +1,25 @@
+package com.rdpk.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Optional read replica serving device lookups, lists and counts.
+ *
+ * @param enabled Whether reads are routed to the replica; when false everything uses {@code spring.r2dbc.url}
+ * @param url R2DBC URL of the replica
+ * @param username Replica user; defaults to {@code spring.r2dbc.username}
+ * @param password Replica password; defaults to {@code spring.r2dbc.password}
+ * @param readYourWritesWindow How long a client's reads stay on the primary after it wrote
+ */
+@ConfigurationProperties(prefix = "devices.read-replica")
+public record ReadReplicaProperties(
+        @DefaultValue("false") boolean enabled,
+        String url,
+        String username,
+        String password,
+        @DefaultValue("5s") Duration readYourWritesWindow
+) {
+}
@@ -0,0 +1,61 @@
+package com.rdpk.config;
+
+import com.rdpk.device.support.ReadRouting;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Identifies the client of each request for read-your-writes routing.
+ *
+ * <p>The client is the {@value #CLIENT_ID_HEADER} header, or the remote address when it is
+ * missing (clients behind the same proxy then share their pinning). Any request that may
+ * write, i.e. anything but GET, HEAD and OPTIONS, pins its client to the primary before it
+ * is handled, so the pin is in place by the time the client sees the response. A write
+ * that fails may still have committed, so the pin is not taken back; a successful write
+ * renews it, so the window counts from its end even for long imports.
+ */
+public class ReadYourWritesWebFilter implements WebFilter {
+    
+    static final String CLIENT_ID_HEADER = "X-Client-Id";
+    
+    private static final Set<HttpMethod> READ_ONLY_METHODS = Set.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS);
+    
+    private final ReadRouting readRouting;
+    
+    public ReadYourWritesWebFilter(ReadRouting readRouting) {
+        this.readRouting = readRouting;
+    }
+    
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        Optional<String> clientId = clientId(exchange);
+        if (clientId.isEmpty()) {
+            return chain.filter(exchange);
+        }
+        Mono<Void> handled = chain.filter(exchange)
+                .contextWrite(ctx -> ctx.put(ReadRouting.CLIENT_KEY, clientId.get()));
+        if (READ_ONLY_METHODS.contains(exchange.getRequest().getMethod())) {
+            return handled;
+        }
+        return Mono.defer(() -> {
+            readRouting.recordWrite(clientId.get());
+            return handled.doOnSuccess(done -> readRouting.recordWrite(clientId.get()));
+        });
+    }
+    
+    private static Optional<String> clientId(ServerWebExchange exchange) {
+        return Optional.ofNullable(exchange.getRequest().getHeaders().getFirst(CLIENT_ID_HEADER))
+                .filter(header -> !header.isBlank())
+                .or(() -> Optional.ofNullable(exchange.getRequest().getRemoteAddress())
+                        .map(InetSocketAddress::getAddress)
+                        .map(InetAddress::getHostAddress));
+    }
+}
@@ -0,0 +1,60 @@
+package com.rdpk.config;
+
+import com.rdpk.device.support.RetryBudget;
+import io.github.resilience4j.common.retry.configuration.RetryConfigCustomizer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+@Configuration
+@EnableConfigurationProperties(RetryBudgetProperties.class)
+public class RetryBudgetConfig {
+    
+    /**
+     * One budget shared by every device retry instance, so retries stay capped however
+     * they are spread across profiles.
+     */
+    @Bean
+    public RetryBudget retryBudget(RetryBudgetProperties properties, Clock clock, MeterRegistry meterRegistry) {
+        return new RetryBudget(properties.budgetRatio(), properties.minRetriesPerSecond(),
+                properties.budgetWindow(), clock, meterRegistry);
+    }
+    
+    // Customizers replace the fixed waitDuration of each retry instance with the budgeted,
+    // jittered backoff. Writes are included so they are budgeted if retries are ever enabled.
+    
+    @Bean
+    public RetryConfigCustomizer deviceLookupsRetryBackoff(RetryBudget retryBudget, RetryBudgetProperties properties) {
+        return budgetedBackoff("device-lookups", retryBudget, properties);
+    }
+    
+    @Bean
+    public RetryConfigCustomizer deviceListsRetryBackoff(RetryBudget retryBudget, RetryBudgetProperties properties) {
+        return budgetedBackoff("device-lists", retryBudget, properties);
+    }
+    
+    @Bean
+    public RetryConfigCustomizer deviceCountsRetryBackoff(RetryBudget retryBudget, RetryBudgetProperties properties) {
+        return budgetedBackoff("device-counts", retryBudget, properties);
+    }
+    
+    @Bean
+    public RetryConfigCustomizer deviceWritesRetryBackoff(RetryBudget retryBudget, RetryBudgetProperties properties) {
+        return budgetedBackoff("device-writes", retryBudget, properties);
+    }
+    
+    @Bean
+    public RetryConfigCustomizer deviceBulkRetryBackoff(RetryBudget retryBudget, RetryBudgetProperties properties) {
+        return budgetedBackoff("device-bulk", retryBudget, properties);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static RetryConfigCustomizer budgetedBackoff(
+            String instance, RetryBudget retryBudget, RetryBudgetProperties properties) {
+        return RetryConfigCustomizer.of(instance, builder ->
+                builder.intervalBiFunction(retryBudget.backoff(properties.baseWait(), properties.maxWait())));
+    }
+}
@@ -0,0 +1,25 @@
+package com.rdpk.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Backoff and budget shared by the device retry instances.
+ *
+ * @param baseWait Upper bound of the jittered wait before the first retry; doubles per attempt
+ * @param maxWait Upper bound of any jittered wait
+ * @param budgetRatio Retries allowed per call that succeeded on its first attempt in the budget window
+ * @param minRetriesPerSecond Retries allowed per second regardless of successes
+ * @param budgetWindow How far back successes and retries are counted
+ */
+@ConfigurationProperties(prefix = "devices.retry")
+public record RetryBudgetProperties(
+        @DefaultValue("200ms") Duration baseWait,
+        @DefaultValue("2s") Duration maxWait,
+        @DefaultValue("0.1") double budgetRatio,
+        @DefaultValue("10") int minRetriesPerSecond,
+        @DefaultValue("10s") Duration budgetWindow
+) {
+}
@@ -0,0 +1,36 @@
+package com.rdpk.config;
+
+import com.rdpk.device.domain.Device;
+import com.rdpk.device.repository.DeviceSqlRepository;
+import com.rdpk.device.support.WriteCoalescer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(DeviceCreateCoalescingProperties.class)
+public class WriteCoalescingConfig {
+    
+    /**
+     * Coalescer for device creates, flushing each batch as one multi-row INSERT ... RETURNING.
+     * 
+     * <p>Only created when {@code devices.create-coalescing.enabled=true}; batch size and
+     * queueing delay are exported as {@code write_coalescer_*{name="device-create"}}.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "devices.create-coalescing", name = "enabled", havingValue = "true")
+    public WriteCoalescer<Device, Device> deviceCreateCoalescer(
+            DeviceCreateCoalescingProperties properties,
+            DeviceSqlRepository deviceSqlRepository,
+            MeterRegistry meterRegistry) {
+        return new WriteCoalescer<>(
+                "device-create",
+                properties.maxBatchSize(),
+                properties.maxDelay(),
+                deviceSqlRepository::insertAll,
+                meterRegistry
+        );
+    }
+}
@@ -1,33 +1,74 @@
 package com.rdpk.device.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.rdpk.device.domain.Device;
+import com.rdpk.device.domain.DevicePage;
 import com.rdpk.device.domain.DeviceState;
+import com.rdpk.device.dto.BatchCreateDeviceResponse;
+import com.rdpk.device.dto.BatchCreateItemResult;
 import com.rdpk.device.dto.CreateDeviceRequest;
 import com.rdpk.device.dto.CreateDeviceResponse;
+import com.rdpk.device.dto.CursorPagedResponse;
+import com.rdpk.device.dto.DeviceCursor;
+import com.rdpk.device.dto.DeviceLookupResponse;
 import com.rdpk.device.dto.GetDeviceResponse;
+import com.rdpk.device.dto.ImportDevicesResponse;
 import com.rdpk.device.dto.PagedResponse;
+import com.rdpk.device.dto.SlicedResponse;
+import com.rdpk.device.dto.StateTransitionRequest;
+import com.rdpk.device.dto.StateTransitionResponse;
 import com.rdpk.device.dto.UpdateDeviceRequest;
 import com.rdpk.device.dto.UpdateDeviceResponse;
+import com.rdpk.device.exception.DeviceImportException;
+import com.rdpk.device.exception.DevicePreconditionFailedException;
 import com.rdpk.device.service.DeviceService;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.StringDecoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/v1/devices")
 public class DeviceController {
     
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final int MAX_LOOKUP_IDS = 500;
+    private static final int MAX_CLAIM_COUNT = 100;
+    private static final String CSV_HEADER = "name,brand";
+    private static final String CSV_EXPORT_HEADER = "id,name,brand,state,createdAt\n";
+    
     private final DeviceService deviceService;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final StringDecoder lineDecoder = StringDecoder.textPlainOnly();
     
-    public DeviceController(DeviceService deviceService) {
+    public DeviceController(DeviceService deviceService, Validator validator, ObjectMapper objectMapper) {
         this.deviceService = deviceService;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
     }
     
     @PostMapping
@@ -38,6 +79,82 @@ public class DeviceController {
                 .map(response -> ResponseEntity.status(HttpStatus.CREATED).body(response));
     }
     
+    /**
+     * Creates up to {@value #MAX_BATCH_SIZE} devices in one request.
+     * 
+     * <p>Each item is validated on its own: invalid items are reported as {@code REJECTED}
+     * and the valid ones are inserted together in one transaction, using multi-row INSERTs.
+     * Results are returned in request order.
+     * 
+     * @param requests Devices to create
+     * @return 201 when every item was created, 207 when some were rejected,
+     *         400 when the batch is empty or too large
+     */
+    @PostMapping("/batch")
+    public Mono<ResponseEntity<BatchCreateDeviceResponse>> createDevices(
+            @RequestBody List<CreateDeviceRequest> requests) {
+        if (requests.isEmpty() || requests.size() > MAX_BATCH_SIZE) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        
+        List<BatchCreateItemResult> rejected = new ArrayList<>();
+        List<Integer> acceptedIndexes = new ArrayList<>();
+        List<Device> accepted = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            CreateDeviceRequest request = requests.get(i);
+            String error = validationError(request);
+            if (error != null) {
+                rejected.add(BatchCreateItemResult.rejected(i, error));
+            } else {
+                acceptedIndexes.add(i);
+                accepted.add(new Device(request.name(), request.brand(), null));
+            }
+        }
+        
+        return deviceService.createDevices(accepted)
+                .collectList()
+                .map(created -> {
+                    List<BatchCreateItemResult> results = new ArrayList<>(rejected);
+                    for (int i = 0; i < created.size(); i++) {
+                        results.add(BatchCreateItemResult.created(
+                                acceptedIndexes.get(i), CreateDeviceResponse.from(created.get(i))));
+                    }
+                    results.sort(Comparator.comparingInt(BatchCreateItemResult::index));
+                    HttpStatus status = rejected.isEmpty() ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS;
+                    return ResponseEntity.status(status).body(BatchCreateDeviceResponse.of(results));
+                });
+    }
+    
+    /**
+     * Imports devices from a CSV body with PostgreSQL COPY.
+     * 
+     * <p>One device per line as {@code name,brand}; an optional {@code name,brand} header on the
+     * first line is skipped and fields may be double-quoted. The body is streamed into the database, so
+     * imports of any size run in constant memory. Every row is validated like
+     * {@link CreateDeviceRequest}; the first invalid row aborts the whole import.
+     * 
+     * @param body Request body
+     * @return 201 with the number of imported devices, or 400 naming the first invalid line
+     */
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public Mono<ResponseEntity<ImportDevicesResponse>> importDevicesFromCsv(@RequestBody Flux<DataBuffer> body) {
+        return importDevices(body, CSV_HEADER, this::parseCsvLine);
+    }
+    
+    /**
+     * Imports devices from a newline-delimited JSON body with PostgreSQL COPY.
+     * 
+     * <p>One {@link CreateDeviceRequest} JSON object per line. Otherwise behaves like
+     * {@link #importDevicesFromCsv}.
+     * 
+     * @param body Request body
+     * @return 201 with the number of imported devices, or 400 naming the first invalid line
+     */
+    @PostMapping(value = "/import", consumes = "application/x-ndjson")
+    public Mono<ResponseEntity<ImportDevicesResponse>> importDevicesFromNdjson(@RequestBody Flux<DataBuffer> body) {
+        return importDevices(body, null, this::parseJsonLine);
+    }
+    
     /**
      * Gets all devices with optional filtering and pagination.
      * 
@@ -46,18 +163,36 @@ public class DeviceController {
      *   <li>Filtering by brand: {@code ?brand=Apple}</li>
      *   <li>Filtering by state: {@code ?state=AVAILABLE}</li>
      *   <li>Pagination: {@code ?page=0&size=20}</li>
+     *   <li>Cursor pagination: {@code ?after=<nextCursor>&size=20}</li>
+     *   <li>Skipping totals: {@code ?withTotal=false}</li>
      * </ul>
      * 
      * <p>Pagination: If not provided, defaults to {@code page=0} and {@code size=20}.
      * All responses are paginated for consistency and safety.
      * 
-     * <p>Sorting: Results are always sorted by {@code createdAt DESC} (newest first).
+     * <p>Cursor pagination: every page with a next page carries an opaque {@code nextCursor}.
+     * Passing it as {@code after} seeks directly past the last returned device instead of
+     * skipping {@code page * size} rows, so deep pages cost the same as the first one.
+     * {@code after} cannot be combined with {@code page}.
+     * 
+     * <p>Totals: with {@code withTotal=false} no count query runs; the response omits
+     * {@code totalElements}/{@code totalPages} and {@code hasNext} is derived from fetching
+     * one extra row. Cursor pages never include totals.
+     * 
+     * <p>Sorting: Results are always sorted by {@code createdAt DESC, id DESC} (newest first).
      * Custom sorting is not currently supported due to Spring Data R2DBC limitations.
      * 
+     * <p>Caching: responses carry a weak {@code ETag} built from the table-level change
+     * sequence, which every write to devices bumps. A request whose {@code If-None-Match}
+     * matches it gets 304 Not Modified before any page or count query runs.
+     * 
      * @param brand Optional brand filter
      * @param state Optional state filter (AVAILABLE, IN_USE, INACTIVE)
      * @param page Page number (0-indexed, optional, defaults to 0)
      * @param size Page size (optional, defaults to 20, max 100)
+     * @param after Cursor of the last device of the previous page (optional)
+     * @param withTotal Whether to count matching devices (optional, defaults to true)
+     * @param exchange Current exchange, for the conditional request check
      * @return Paginated response with devices
      */
     @GetMapping
@@ -65,7 +200,29 @@ public class DeviceController {
             @RequestParam(required = false) String brand,
             @RequestParam(required = false) String state,
             @RequestParam(required = false) Integer page,
-            @RequestParam(required = false) Integer size) {
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "true") boolean withTotal,
+            ServerWebExchange exchange) {
+        
+        // The sequence is read before the page and from the same database, so the ETag is never newer than the page
+        return deviceService.withChangeSequence(sequence -> {
+            String eTag = "W/\"" + sequence + "\"";
+            if (exchange.checkNotModified(eTag)) {
+                return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build());
+            }
+            return listDevices(brand, state, page, size, after, withTotal)
+                    .map(response -> response.getStatusCode().is2xxSuccessful()
+                            ? ResponseEntity.status(response.getStatusCode())
+                                    .headers(response.getHeaders())
+                                    .eTag(eTag)
+                                    .body(response.getBody())
+                            : response);
+        });
+    }
+    
+    private Mono<ResponseEntity<?>> listDevices(
+            String brand, String state, Integer page, Integer size, String after, boolean withTotal) {
         
         // Validate pagination parameters if provided
         if (page != null || size != null) {
@@ -77,12 +234,25 @@ public class DeviceController {
         // Default pagination: page=0, size=20
         int pageNumber = page != null ? page : 0;
         int pageSize = size != null ? size : 20;
+        
+        if (after != null) {
+            if (page != null) {
+                return Mono.just(ResponseEntity.badRequest().build());
+            }
+            return DeviceCursor.decode(after)
+                    .map(cursor -> getDevicesAfter(brand, state, cursor, pageSize))
+                    .orElse(Mono.just(ResponseEntity.badRequest().build()));
+        }
+        
+        if (!withTotal) {
+            return getDevicesSlice(brand, state, pageNumber, pageSize);
+        }
+        
         Pageable pageable = PageRequest.of(pageNumber, pageSize);
         
         if (brand != null) {
             return buildPaginatedResponse(
-                    deviceService.getDevicesByBrand(brand, pageable),
-                    deviceService.countByBrand(brand),
+                    deviceService.getDevicesByBrandPage(brand, pageable),
                     pageNumber, pageSize
             );
         }
@@ -90,8 +260,7 @@ public class DeviceController {
         if (state != null) {
             return DeviceState.fromString(state)
                     .map(deviceState -> buildPaginatedResponse(
-                            deviceService.getDevicesByState(deviceState, pageable),
-                            deviceService.countByState(deviceState),
+                            deviceService.getDevicesByStatePage(deviceState, pageable),
                             pageNumber, pageSize
                     ))
                     .orElse(Mono.just(ResponseEntity.badRequest().build()));
@@ -99,17 +268,155 @@ public class DeviceController {
         
         // Paginated all devices
         return buildPaginatedResponse(
-                deviceService.getAllDevices(pageable),
-                deviceService.countAllDevices(),
+                deviceService.getAllDevicesPage(pageable),
+                pageNumber, pageSize
+        );
+    }
+    
+    /**
+     * Gets a page of devices without counting them.
+     * 
+     * <p>Fetches {@code pageSize + 1} rows: the extra row only signals that a next page exists.
+     */
+    private Mono<ResponseEntity<?>> getDevicesSlice(String brand, String state, int pageNumber, int pageSize) {
+        long offset = (long) pageNumber * pageSize;
+        int limit = pageSize + 1;
+        
+        if (brand != null) {
+            return buildSlicedResponse(
+                    deviceService.getDevicesByBrandSlice(brand, offset, limit),
+                    pageNumber, pageSize
+            );
+        }
+        
+        if (state != null) {
+            return DeviceState.fromString(state)
+                    .map(deviceState -> buildSlicedResponse(
+                            deviceService.getDevicesByStateSlice(deviceState, offset, limit),
+                            pageNumber, pageSize
+                    ))
+                    .orElse(Mono.just(ResponseEntity.badRequest().build()));
+        }
+        
+        return buildSlicedResponse(
+                deviceService.getAllDevicesSlice(offset, limit),
                 pageNumber, pageSize
         );
     }
     
+    /**
+     * Gets the page of devices following the given cursor.
+     * 
+     * <p>Fetches {@code pageSize + 1} rows: the extra row only signals that a next page exists.
+     */
+    private Mono<ResponseEntity<?>> getDevicesAfter(String brand, String state, DeviceCursor cursor, int pageSize) {
+        int limit = pageSize + 1;
+        
+        if (brand != null) {
+            return buildCursorPagedResponse(
+                    deviceService.getDevicesByBrandAfter(brand, cursor.createdAt(), cursor.id(), limit),
+                    pageSize
+            );
+        }
+        
+        if (state != null) {
+            return DeviceState.fromString(state)
+                    .map(deviceState -> buildCursorPagedResponse(
+                            deviceService.getDevicesByStateAfter(deviceState, cursor.createdAt(), cursor.id(), limit),
+                            pageSize
+                    ))
+                    .orElse(Mono.just(ResponseEntity.badRequest().build()));
+        }
+        
+        return buildCursorPagedResponse(
+                deviceService.getAllDevicesAfter(cursor.createdAt(), cursor.id(), limit),
+                pageSize
+        );
+    }
+    
+    /**
+     * Gets up to {@value #MAX_LOOKUP_IDS} devices by id in one request: {@code ?ids=1,2,3}.
+     * 
+     * <p>Served by one query for all ids not already cached, instead of one request and
+     * query per id. Devices are returned in the order their ids were requested; duplicate
+     * ids are returned once and ids with no device are listed in {@code missingIds}.
+     * 
+     * @param ids Comma-separated device ids
+     * @return Found devices and missing ids, or 400 when the ids are empty, malformed or too many
+     */
+    @GetMapping(params = "ids")
+    public Mono<ResponseEntity<DeviceLookupResponse>> getDevicesByIds(@RequestParam String ids) {
+        Set<Long> requestedIds = new LinkedHashSet<>();
+        try {
+            for (String id : ids.split(",")) {
+                requestedIds.add(Long.parseLong(id.strip()));
+            }
+        } catch (NumberFormatException e) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        if (requestedIds.size() > MAX_LOOKUP_IDS) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        
+        return deviceService.getDevicesByIds(requestedIds)
+                .collectMap(Device::id)
+                .map(found -> ResponseEntity.ok(new DeviceLookupResponse(
+                        requestedIds.stream().filter(found::containsKey).map(found::get).map(GetDeviceResponse::from).toList(),
+                        requestedIds.stream().filter(id -> !found.containsKey(id)).toList()
+                )));
+    }
+    
+    /**
+     * Exports all devices as newline-delimited JSON, one {@link GetDeviceResponse} per line,
+     * ordered by ID.
+     * 
+     * <p>Rows are read from the database only as fast as the client consumes the response,
+     * so one request can export the whole inventory without paging and with constant memory.
+     * This is the default representation; see {@link #exportDevicesAsCsv} for CSV.
+     * 
+     * @return Streaming NDJSON response
+     */
+    @GetMapping("/export")
+    public ResponseEntity<Flux<GetDeviceResponse>> exportDevices() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(deviceService.exportDevices().map(GetDeviceResponse::from));
+    }
+    
+    /**
+     * Exports all devices as CSV with a header line, ordered by ID.
+     * 
+     * <p>Selected with {@code Accept: text/csv}; streams like {@link #exportDevices}.
+     * 
+     * @return Streaming CSV response
+     */
+    @GetMapping(value = "/export", produces = "text/csv")
+    public Flux<String> exportDevicesAsCsv() {
+        Flux<String> lines = deviceService.exportDevices()
+                .map(device -> String.join(",",
+                        String.valueOf(device.id()),
+                        csvField(device.name()),
+                        csvField(device.brand()),
+                        device.state().name(),
+                        String.valueOf(device.createdAt())) + "\n");
+        return Flux.concat(Mono.just(CSV_EXPORT_HEADER), lines);
+    }
+    
+    /**
+     * Gets a device by ID.
+     * 
+     * <p>The response carries the device version as a strong {@code ETag}. A request whose
+     * {@code If-None-Match} matches it gets 304 Not Modified without a body.
+     * 
+     * @param id Device ID
+     * @return Device response with ETag
+     */
     @GetMapping("/{id}")
     public Mono<ResponseEntity<GetDeviceResponse>> getDeviceById(@PathVariable Long id) {
         return deviceService.getDeviceById(id)
-                .map(GetDeviceResponse::from)
-                .map(ResponseEntity::ok);
+                .map(device -> ResponseEntity.ok()
+                        .eTag(eTag(device))
+                        .body(GetDeviceResponse.from(device)));
     }
     
     /**
@@ -128,34 +435,271 @@ public class DeviceController {
      *   <li>State can always be updated regardless of current state</li>
      * </ul>
      * 
+     * <p>With {@code If-Match: "<version>"} (the device's ETag) the update only applies if the
+     * device was not modified since; otherwise it fails with 412 Precondition Failed.
+     * 
      * @param id The device ID to update
+     * @param ifMatch Optional ETag the device must still have
      * @param request Partial update request - only non-null fields will be updated
-     * @return Updated device response
+     * @return Updated device response with its new ETag
      */
     @PatchMapping("/{id}")
     public Mono<ResponseEntity<UpdateDeviceResponse>> updateDevice(
             @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody UpdateDeviceRequest request) {
+        DeviceState state = null;
         if (request.state() != null) {
             Optional<DeviceState> parsedState = DeviceState.fromString(request.state());
             if (parsedState.isEmpty()) {
                 return Mono.just(ResponseEntity.badRequest().build());
             }
-            return deviceService.updateDevice(id, request.name(), request.brand(), parsedState.get())
-                    .map(UpdateDeviceResponse::from)
-                    .map(ResponseEntity::ok);
+            state = parsedState.get();
         }
-        return deviceService.updateDevice(id, request.name(), request.brand(), null)
-                .map(UpdateDeviceResponse::from)
+        DeviceState newState = state;
+        return Mono.fromCallable(() -> expectedVersion(ifMatch))
+                .flatMap(version -> deviceService.updateDevice(id, request.name(), request.brand(), newState, version.orElse(null)))
+                .map(device -> ResponseEntity.ok()
+                        .eTag(eTag(device))
+                        .body(UpdateDeviceResponse.from(device)));
+    }
+    
+    /**
+     * Moves many devices to a target state with one set-based UPDATE.
+     * 
+     * <p>Devices are selected by {@code ids}, or by a {@code brand} and/or {@code state} filter.
+     * Devices already in the target state, and unknown ids, are left out of the result.
+     * 
+     * @param request Selection and target state
+     * @return IDs whose state changed, or 400 when the selection or a state is invalid
+     */
+    @PostMapping("/state-transitions")
+    public Mono<ResponseEntity<StateTransitionResponse>> transitionStates(
+            @Valid @RequestBody StateTransitionRequest request) {
+        Optional<DeviceState> target = DeviceState.fromString(request.targetState());
+        if (target.isEmpty()) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        
+        Flux<Long> updatedIds;
+        if (request.ids() != null) {
+            if (request.ids().isEmpty() || request.brand() != null || request.state() != null) {
+                return Mono.just(ResponseEntity.badRequest().build());
+            }
+            updatedIds = deviceService.transitionStates(request.ids(), target.get());
+        } else {
+            if (request.brand() == null && request.state() == null) {
+                return Mono.just(ResponseEntity.badRequest().build());
+            }
+            Optional<DeviceState> state = DeviceState.fromString(request.state());
+            if (request.state() != null && state.isEmpty()) {
+                return Mono.just(ResponseEntity.badRequest().build());
+            }
+            updatedIds = deviceService.transitionStatesMatching(request.brand(), state.orElse(null), target.get());
+        }
+        
+        return updatedIds.sort()
+                .collectList()
+                .map(ids -> ResponseEntity.ok(StateTransitionResponse.of(target.get().name(), ids)));
+    }
+    
+    /**
+     * Claims up to {@code count} AVAILABLE devices of a brand, marking them IN_USE.
+     * 
+     * <p>Picking and transitioning happen in one statement, so concurrent callers always get
+     * distinct devices and never need to retry a lost race.
+     * 
+     * @param brand Brand to claim devices of
+     * @param count Number of devices wanted (1 to {@value #MAX_CLAIM_COUNT}, default 1)
+     * @return Claimed devices, possibly fewer than requested or none, or 400 on invalid parameters
+     */
+    @PostMapping("/claim")
+    public Mono<ResponseEntity<List<GetDeviceResponse>>> claimDevices(
+            @RequestParam String brand,
+            @RequestParam(defaultValue = "1") int count) {
+        if (brand.isBlank() || count < 1 || count > MAX_CLAIM_COUNT) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return deviceService.claimDevices(brand, count)
+                .map(GetDeviceResponse::from)
+                .collectList()
                 .map(ResponseEntity::ok);
     }
     
+    /**
+     * Deletes an AVAILABLE device.
+     * 
+     * <p>With {@code If-Match: "<version>"} the delete only applies if the device was not
+     * modified since; otherwise it fails with 412 Precondition Failed.
+     * 
+     * @param id Device ID
+     * @param ifMatch Optional ETag the device must still have
+     * @return 204 No Content
+     */
     @DeleteMapping("/{id}")
-    public Mono<ResponseEntity<Void>> deleteDevice(@PathVariable Long id) {
-        return deviceService.deleteDevice(id)
+    public Mono<ResponseEntity<Void>> deleteDevice(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return Mono.fromCallable(() -> expectedVersion(ifMatch))
+                .flatMap(version -> deviceService.deleteDevice(id, version.orElse(null)))
                 .then(Mono.just(ResponseEntity.noContent().<Void>build()));
     }
     
+    /**
+     * Strong ETag of a device: its version, which changes with every update.
+     */
+    private static String eTag(Device device) {
+        return "\"" + device.version() + "\"";
+    }
+    
+    /**
+     * Reads the version a conditional write requires from an {@code If-Match} header.
+     * 
+     * <p>Only a single strong ETag or {@code *} is supported. Weak, malformed or multiple
+     * ETags can never match a device, so they fail the precondition.
+     * 
+     * @param ifMatch If-Match header, possibly null
+     * @return Expected version, or empty when any version is acceptable
+     * @throws DevicePreconditionFailedException if the header can never match
+     */
+    private static Optional<Long> expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.strip().equals("*")) {
+            return Optional.empty();
+        }
+        String tag = ifMatch.strip();
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Optional.of(Long.parseLong(tag.substring(1, tag.length() - 1)));
+            } catch (NumberFormatException ignored) {
+                // falls through to the precondition failure
+            }
+        }
+        throw new DevicePreconditionFailedException("If-Match does not match the current device version");
+    }
+    
+    /**
+     * Splits the body into lines, parses and validates each one, and streams the
+     * resulting devices into the import.
+     * 
+     * @param body Request body
+     * @param header Header skipped when it is the first line, or null when the format has none
+     * @param parser Parses one non-blank line; returns null for lines to skip
+     * @return Response with the number of imported devices
+     */
+    private Mono<ResponseEntity<ImportDevicesResponse>> importDevices(
+            Flux<DataBuffer> body, String header, Function<String, CreateDeviceRequest> parser) {
+        Flux<Device> devices = lineDecoder.decode(body, ResolvableType.forClass(String.class), null, Map.of())
+                .index()
+                .filter(line -> !line.getT2().isBlank())
+                .filter(line -> line.getT1() != 0 || header == null || !line.getT2().strip().equalsIgnoreCase(header))
+                .concatMap(line -> {
+                    long lineNumber = line.getT1() + 1;
+                    CreateDeviceRequest request;
+                    try {
+                        request = parser.apply(line.getT2());
+                    } catch (IllegalArgumentException e) {
+                        return Mono.error(new DeviceImportException("line " + lineNumber + ": " + e.getMessage()));
+                    }
+                    if (request == null) {
+                        return Mono.empty();
+                    }
+                    String error = validationError(request);
+                    if (error != null) {
+                        return Mono.error(new DeviceImportException("line " + lineNumber + ": " + error));
+                    }
+                    return Mono.just(new Device(request.name(), request.brand(), null));
+                });
+        return deviceService.importDevices(devices)
+                .map(imported -> ResponseEntity.status(HttpStatus.CREATED).body(new ImportDevicesResponse(imported)));
+    }
+    
+    /**
+     * Parses a CSV line of {@code name,brand}, where fields may be double-quoted
+     * and quotes inside quoted fields are doubled.
+     * 
+     * @param line CSV line
+     * @return Parsed request
+     * @throws IllegalArgumentException if the line does not have exactly two fields
+     */
+    private CreateDeviceRequest parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        if (quoted || fields.size() != 2) {
+            throw new IllegalArgumentException("expected 2 CSV fields (name,brand)");
+        }
+        return new CreateDeviceRequest(fields.get(0), fields.get(1));
+    }
+    
+    /**
+     * Quotes a CSV field when it contains a delimiter, quote or line break.
+     * 
+     * @param value Field value
+     * @return Field as written to CSV
+     */
+    private static String csvField(String value) {
+        if (value.chars().noneMatch(c -> c == ',' || c == '"' || c == '\n' || c == '\r')) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+    
+    /**
+     * Parses an NDJSON line into a create request.
+     * 
+     * @param line JSON object
+     * @return Parsed request
+     * @throws IllegalArgumentException if the line is not a valid JSON object
+     */
+    private CreateDeviceRequest parseJsonLine(String line) {
+        try {
+            return objectMapper.readValue(line, CreateDeviceRequest.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("malformed JSON");
+        }
+    }
+    
+    /**
+     * Validates one batch or import item, formatting errors like single-item validation failures.
+     * 
+     * @param request Item to validate, possibly null
+     * @return Validation error message, or null if the item is valid
+     */
+    private String validationError(CreateDeviceRequest request) {
+        if (request == null) {
+            return "item: must not be null";
+        }
+        Set<ConstraintViolation<CreateDeviceRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+    
     /**
      * Validates pagination parameters.
      * 
@@ -169,22 +713,72 @@ public class DeviceController {
     
     
     /**
-     * Builds a paginated response from devices flux and count mono.
+     * Builds a paginated response from a page of devices and its total.
      * 
-     * @param devices Flux of devices to paginate
-     * @param count Mono of total count
+     * @param page Mono of the page content and total count, fetched in a single statement
      * @param pageNumber Current page number
      * @param pageSize Page size
      * @return Mono of ResponseEntity with PagedResponse
      */
     private Mono<ResponseEntity<?>> buildPaginatedResponse(
-            Flux<Device> devices, Mono<Long> count, int pageNumber, int pageSize) {
-        return Mono.zip(
-                devices.map(GetDeviceResponse::from).collectList(),
-                count
-        ).map(tuple -> ResponseEntity.ok(
-                PagedResponse.of(tuple.getT1(), pageNumber, pageSize, tuple.getT2())
+            Mono<DevicePage> page, int pageNumber, int pageSize) {
+        return page.map(devicePage -> ResponseEntity.ok(
+                PagedResponse.of(toResponses(devicePage.devices()), pageNumber, pageSize,
+                        devicePage.totalElements(), lastCursor(devicePage.devices()))
         ));
     }
+    
+    /**
+     * Builds a cursor paginated response from a flux of at most {@code pageSize + 1} devices.
+     * 
+     * @param devices Flux of devices, one more than the page size if there is a next page
+     * @param pageSize Page size
+     * @return Mono of ResponseEntity with CursorPagedResponse
+     */
+    private Mono<ResponseEntity<?>> buildCursorPagedResponse(Flux<Device> devices, int pageSize) {
+        return devices.collectList()
+                .map(fetched -> {
+                    boolean hasNext = fetched.size() > pageSize;
+                    List<Device> pageContent = hasNext ? fetched.subList(0, pageSize) : fetched;
+                    return ResponseEntity.ok(new CursorPagedResponse<>(
+                            toResponses(pageContent),
+                            pageSize,
+                            hasNext,
+                            hasNext ? lastCursor(pageContent) : null
+                    ));
+                });
+    }
+    
+    /**
+     * Builds a sliced response from a flux of at most {@code pageSize + 1} devices.
+     * 
+     * @param devices Flux of devices, one more than the page size if there is a next page
+     * @param pageNumber Current page number
+     * @param pageSize Page size
+     * @return Mono of ResponseEntity with SlicedResponse
+     */
+    private Mono<ResponseEntity<?>> buildSlicedResponse(Flux<Device> devices, int pageNumber, int pageSize) {
+        return devices.collectList()
+                .map(fetched -> {
+                    boolean hasNext = fetched.size() > pageSize;
+                    List<Device> pageContent = hasNext ? fetched.subList(0, pageSize) : fetched;
+                    return ResponseEntity.ok(new SlicedResponse<>(
+                            toResponses(pageContent),
+                            pageNumber,
+                            pageSize,
+                            hasNext,
+                            pageNumber > 0,
+                            hasNext ? lastCursor(pageContent) : null
+                    ));
+                });
+    }
+    
+    private List<GetDeviceResponse> toResponses(List<Device> devices) {
+        return devices.stream().map(GetDeviceResponse::from).toList();
+    }
+    
+    private String lastCursor(List<Device> devices) {
+        return devices.isEmpty() ? null : DeviceCursor.from(devices.get(devices.size() - 1)).encode();
+    }
 }
 
@@ -1,6 +1,7 @@
 package com.rdpk.device.domain;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.relational.core.mapping.Column;
 import org.springframework.data.relational.core.mapping.Table;
 
@@ -18,26 +19,33 @@ public record Device(
     @Column("state")
     DeviceState state,
     @Column("created_at")
-    LocalDateTime createdAt
+    LocalDateTime createdAt,
+    @Version
+    @Column("version")
+    Long version
 ) {
+    public Device(Long id, String name, String brand, DeviceState state, LocalDateTime createdAt) {
+        this(id, name, brand, state, createdAt, null);
+    }
+    
     public Device(String name, String brand, LocalDateTime createdAt) {
         this(null, name, brand, DeviceState.AVAILABLE, createdAt);
     }
     
     public Device withState(DeviceState newState) {
-        return new Device(id, name, brand, newState, createdAt);
+        return new Device(id, name, brand, newState, createdAt, version);
     }
     
     public Device withNameAndBrand(String newName, String newBrand) {
-        return new Device(id, newName, newBrand, state, createdAt);
+        return new Device(id, newName, newBrand, state, createdAt, version);
     }
     
     public Device withName(String newName) {
-        return new Device(id, newName, brand, state, createdAt);
+        return new Device(id, newName, brand, state, createdAt, version);
     }
     
     public Device withBrand(String newBrand) {
-        return new Device(id, name, newBrand, state, createdAt);
+        return new Device(id, name, newBrand, state, createdAt, version);
     }
     
     public boolean isInUse() {
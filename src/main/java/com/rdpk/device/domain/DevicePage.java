@@ -0,0 +1,12 @@
+package com.rdpk.device.domain;
+
+import java.util.List;
+
+/**
+ * A page of devices together with the total number of devices matching the same filter.
+ */
+public record DevicePage(
+    List<Device> devices,
+    long totalElements
+) {
+}
@@ -0,0 +1,14 @@
+package com.rdpk.device.dto;
+
+import java.util.List;
+
+public record BatchCreateDeviceResponse(
+    int created,
+    int rejected,
+    List<BatchCreateItemResult> results
+) {
+    public static BatchCreateDeviceResponse of(List<BatchCreateItemResult> results) {
+        int created = (int) results.stream().filter(result -> result.device() != null).count();
+        return new BatchCreateDeviceResponse(created, results.size() - created, results);
+    }
+}
@@ -0,0 +1,24 @@
+package com.rdpk.device.dto;
+
+/**
+ * Outcome of one item of a batch create request.
+ *
+ * @param index Position of the item in the request array
+ * @param status {@code CREATED} or {@code REJECTED}
+ * @param device Created device, null when rejected
+ * @param error Validation errors, null when created
+ */
+public record BatchCreateItemResult(
+    int index,
+    String status,
+    CreateDeviceResponse device,
+    String error
+) {
+    public static BatchCreateItemResult created(int index, CreateDeviceResponse device) {
+        return new BatchCreateItemResult(index, "CREATED", device, null);
+    }
+    
+    public static BatchCreateItemResult rejected(int index, String error) {
+        return new BatchCreateItemResult(index, "REJECTED", null, error);
+    }
+}
@@ -0,0 +1,16 @@
+package com.rdpk.device.dto;
+
+import java.util.List;
+
+/**
+ * Page of a keyset (cursor) paginated listing.
+ * 
+ * <p>{@code nextCursor} is null on the last page.
+ */
+public record CursorPagedResponse<T>(
+    List<T> content,
+    int size,
+    boolean hasNext,
+    String nextCursor
+) {
+}
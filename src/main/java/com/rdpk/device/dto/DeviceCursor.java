@@ -0,0 +1,56 @@
+package com.rdpk.device.dto;
+
+import com.rdpk.device.domain.Device;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Position of a device in the list ordering ({@code createdAt DESC, id DESC}).
+ * 
+ * <p>Exposed to clients as an opaque, URL-safe token via {@link #encode()}.
+ * Clients pass it back as {@code ?after=<token>} to fetch the next page.
+ */
+public record DeviceCursor(
+    LocalDateTime createdAt,
+    Long id
+) {
+    private static final String SEPARATOR = "|";
+    
+    public static DeviceCursor from(Device device) {
+        return new DeviceCursor(device.createdAt(), device.id());
+    }
+    
+    public String encode() {
+        String raw = createdAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Decodes a token produced by {@link #encode()}.
+     * 
+     * @param token Opaque cursor token
+     * @return Optional with the cursor if the token is well-formed, empty otherwise
+     */
+    public static Optional<DeviceCursor> decode(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                return Optional.empty();
+            }
+            return Optional.of(new DeviceCursor(
+                LocalDateTime.parse(raw.substring(0, separator)),
+                Long.parseLong(raw.substring(separator + 1))
+            ));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+}
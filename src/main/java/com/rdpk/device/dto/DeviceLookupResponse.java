@@ -0,0 +1,14 @@
+package com.rdpk.device.dto;
+
+import java.util.List;
+
+/**
+ * Response DTO for batch lookups by id.
+ * 
+ * @param content Found devices, in the order their ids were requested
+ * @param missingIds Requested ids with no device, in request order
+ */
+public record DeviceLookupResponse(
+    List<GetDeviceResponse> content,
+    List<Long> missingIds
+) {}
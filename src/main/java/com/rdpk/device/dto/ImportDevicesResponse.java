@@ -0,0 +1,5 @@
+package com.rdpk.device.dto;
+
+public record ImportDevicesResponse(
+    long imported
+) {}
@@ -9,19 +9,27 @@ public record PagedResponse<T>(
     long totalElements,
     int totalPages,
     boolean hasNext,
-    boolean hasPrevious
+    boolean hasPrevious,
+    String nextCursor
 ) {
-    public static <T> PagedResponse<T> of(List<T> content, int page, int size, long total) {
+    /**
+     * Builds a page from its content and the total element count.
+     * 
+     * @param lastCursor Cursor of the last element of {@code content}; exposed as {@code nextCursor}
+     *                   only when there is a next page, so clients can continue with {@code ?after=}
+     */
+    public static <T> PagedResponse<T> of(List<T> content, int page, int size, long total, String lastCursor) {
         int totalPages = (int) Math.ceil((double) total / size);
+        boolean hasNext = page < totalPages - 1;
         return new PagedResponse<>(
             content,
             page,
             size,
             total,
             totalPages,
-            page < totalPages - 1,
-            page > 0
+            hasNext,
+            page > 0,
+            hasNext ? lastCursor : null
         );
     }
 }
-
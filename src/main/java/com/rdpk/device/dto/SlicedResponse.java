@@ -0,0 +1,19 @@
+package com.rdpk.device.dto;
+
+import java.util.List;
+
+/**
+ * Page of devices without totals, returned for {@code ?withTotal=false}.
+ * 
+ * <p>{@code hasNext} is derived from fetching one row more than the page size,
+ * so no count query is needed.
+ */
+public record SlicedResponse<T>(
+    List<T> content,
+    int page,
+    int size,
+    boolean hasNext,
+    boolean hasPrevious,
+    String nextCursor
+) {
+}
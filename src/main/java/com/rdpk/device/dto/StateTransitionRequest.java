@@ -0,0 +1,34 @@
+package com.rdpk.device.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Request DTO for bulk state transitions.
+ * 
+ * <p>Devices are selected either by {@code ids} or by a {@code brand} and/or {@code state}
+ * filter, never both. Every selected device not already in {@code targetState} is moved to it.
+ * 
+ * <p>Example requests:
+ * <ul>
+ *   <li>By ids: {"ids": [1, 2, 3], "targetState": "INACTIVE"}</li>
+ *   <li>By filter: {"brand": "Apple", "state": "INACTIVE", "targetState": "AVAILABLE"}</li>
+ * </ul>
+ */
+public record StateTransitionRequest(
+    /** Devices to transition. Null or omitted = select by filter. */
+    @Size(max = 1000, message = "At most 1000 ids can be transitioned at once")
+    List<Long> ids,
+    
+    /** Brand filter. Only used when ids are omitted. */
+    String brand,
+    
+    /** Current state filter (AVAILABLE, IN_USE, INACTIVE). Only used when ids are omitted. */
+    String state,
+    
+    /** State to move the selected devices to (AVAILABLE, IN_USE, INACTIVE). */
+    @NotBlank(message = "Target state is required")
+    String targetState
+) {}
@@ -0,0 +1,13 @@
+package com.rdpk.device.dto;
+
+import java.util.List;
+
+public record StateTransitionResponse(
+    String targetState,
+    int updated,
+    List<Long> updatedIds
+) {
+    public static StateTransitionResponse of(String targetState, List<Long> updatedIds) {
+        return new StateTransitionResponse(targetState, updatedIds.size(), updatedIds);
+    }
+}
@@ -0,0 +1,7 @@
+package com.rdpk.device.exception;
+
+public class DeviceImportException extends RuntimeException {
+    public DeviceImportException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,17 @@
+package com.rdpk.device.exception;
+
+import java.time.Duration;
+
+public class DeviceOverloadedException extends RuntimeException {
+    
+    private final Duration retryAfter;
+    
+    public DeviceOverloadedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+    
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
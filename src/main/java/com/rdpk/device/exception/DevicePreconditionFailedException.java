@@ -0,0 +1,7 @@
+package com.rdpk.device.exception;
+
+public class DevicePreconditionFailedException extends RuntimeException {
+    public DevicePreconditionFailedException(String message) {
+        super(message);
+    }
+}
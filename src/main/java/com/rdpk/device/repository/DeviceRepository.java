@@ -3,22 +3,96 @@ package com.rdpk.device.repository;
 import com.rdpk.device.domain.Device;
 import com.rdpk.device.domain.DeviceState;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDateTime;
+
 public interface DeviceRepository extends ReactiveCrudRepository<Device, Long> {
     
     // Pagination support
-    // Note: Results are always sorted by createdAt DESC (newest first).
+    // Note: Results are always sorted by createdAt DESC, id DESC (newest first, id as tie-breaker).
     // Spring Data R2DBC doesn't override OrderBy in method names with Sort from Pageable,
     // so dynamic sorting would require a custom repository implementation.
-    Flux<Device> findAllByOrderByCreatedAtDesc(Pageable pageable);
+    Flux<Device> findAllByOrderByCreatedAtDescIdDesc(Pageable pageable);
+    
+    Flux<Device> findByBrandOrderByCreatedAtDescIdDesc(String brand, Pageable pageable);
+    
+    Flux<Device> findByStateOrderByCreatedAtDescIdDesc(DeviceState state, Pageable pageable);
+    
+    // Offset slices without totals: callers ask for one row more than the page size to detect a next page
+    @Query("SELECT * FROM devices ORDER BY created_at DESC, id DESC LIMIT :limit OFFSET :offset")
+    Flux<Device> findSlice(long offset, int limit);
+    
+    @Query("SELECT * FROM devices WHERE brand = :brand ORDER BY created_at DESC, id DESC LIMIT :limit OFFSET :offset")
+    Flux<Device> findSliceByBrand(String brand, long offset, int limit);
     
-    Flux<Device> findByBrand(String brand, Pageable pageable);
+    @Query("SELECT * FROM devices WHERE state = :state ORDER BY created_at DESC, id DESC LIMIT :limit OFFSET :offset")
+    Flux<Device> findSliceByState(String state, long offset, int limit);
+    
+    // Counts are read from device_counts, which triggers on devices keep exact (see V3 migration),
+    // so they cost a lookup over a handful of (brand, state) rows instead of a COUNT(*) over devices.
+    @Query("SELECT COALESCE(SUM(device_count), 0)::bigint FROM device_counts")
+    Mono<Long> countAllDevices();
+    
+    @Query("SELECT COALESCE(SUM(device_count), 0)::bigint FROM device_counts WHERE brand = :brand")
     Mono<Long> countByBrand(String brand);
     
-    Flux<Device> findByState(DeviceState state, Pageable pageable);
-    Mono<Long> countByState(DeviceState state);
+    @Query("SELECT COALESCE(SUM(device_count), 0)::bigint FROM device_counts WHERE state = :state")
+    Mono<Long> countByState(String state);
+    
+    // Recomputes device_counts from devices; returns the total number of devices
+    @Query("SELECT rebuild_device_counts()")
+    Mono<Long> rebuildDeviceCounts();
+    
+    // Sum of the per-(brand, state) change counters the count triggers bump (see V8 migration)
+    @Query("SELECT COALESCE(SUM(changes), 0)::bigint FROM device_counts")
+    Mono<Long> findChangeSequence();
+    
+    // Keyset (cursor) pagination support
+    // Seeks past the (createdAt, id) of the last row of the previous page instead of using OFFSET,
+    // so the cost of a page does not grow with its depth.
+    @Query("SELECT * FROM devices WHERE (created_at, id) < (:createdAt, :id) "
+            + "ORDER BY created_at DESC, id DESC LIMIT :limit")
+    Flux<Device> findAllAfter(LocalDateTime createdAt, Long id, int limit);
+    
+    @Query("SELECT * FROM devices WHERE brand = :brand AND (created_at, id) < (:createdAt, :id) "
+            + "ORDER BY created_at DESC, id DESC LIMIT :limit")
+    Flux<Device> findByBrandAfter(String brand, LocalDateTime createdAt, Long id, int limit);
+    
+    @Query("SELECT * FROM devices WHERE state = :state AND (created_at, id) < (:createdAt, :id) "
+            + "ORDER BY created_at DESC, id DESC LIMIT :limit")
+    Flux<Device> findByStateAfter(String state, LocalDateTime createdAt, Long id, int limit);
+    
+    // Batch lookup: one query for any number of ids
+    @Query("SELECT * FROM devices WHERE id = ANY(:ids)")
+    Flux<Device> findByIds(Long[] ids);
+    
+    // Claims up to :count AVAILABLE devices of a brand by marking them IN_USE.
+    // SKIP LOCKED makes concurrent claimers pick different rows instead of queueing on the same ones.
+    @Query("UPDATE devices SET state = 'IN_USE', version = version + 1 WHERE id IN ("
+            + "SELECT id FROM devices WHERE brand = :brand AND state = 'AVAILABLE' "
+            + "LIMIT :count FOR UPDATE SKIP LOCKED) RETURNING *")
+    Flux<Device> claimAvailable(String brand, int count);
+    
+    // Conditional delete: only AVAILABLE devices are deletable, checked in the same statement.
+    // A non-null version additionally requires the device to still be at that version.
+    // Emits the deleted id, or completes empty when the device is missing, not deletable or changed.
+    @Query("DELETE FROM devices WHERE id = :id AND state = 'AVAILABLE' "
+            + "AND (CAST(:version AS bigint) IS NULL OR version = :version) RETURNING id")
+    Mono<Long> deleteIfAvailable(Long id, Long version);
+    
+    // Set-based state transitions: one UPDATE for any number of devices.
+    // Devices already in the target state are skipped, so only changed ids are returned.
+    @Query("UPDATE devices SET state = :target, version = version + 1 "
+            + "WHERE id = ANY(:ids) AND state <> :target RETURNING id")
+    Flux<Long> transitionStateByIds(Long[] ids, String target);
+    
+    @Query("UPDATE devices SET state = :target, version = version + 1 "
+            + "WHERE (CAST(:brand AS varchar) IS NULL OR brand = :brand) "
+            + "AND (CAST(:state AS varchar) IS NULL OR state = :state) "
+            + "AND state <> :target RETURNING id")
+    Flux<Long> transitionStateByFilter(String brand, String state, String target);
 }
-
@@ -0,0 +1,249 @@
+package com.rdpk.device.repository;
+
+import com.rdpk.device.domain.Device;
+import com.rdpk.device.domain.DevicePage;
+import com.rdpk.device.domain.DeviceState;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import io.r2dbc.spi.Wrapped;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.r2dbc.convert.R2dbcConverter;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hand-written SQL for device queries that derived and {@code @Query} methods
+ * on {@link DeviceRepository} cannot express.
+ * 
+ * <p>Rows are mapped with the same {@link R2dbcConverter} Spring Data uses for
+ * {@link DeviceRepository}, so column mapping stays defined in one place ({@link Device}).
+ */
+@Repository
+public class DeviceSqlRepository {
+    
+    // Page rows and the filter's total from device_counts in one statement.
+    // The LEFT JOIN LATERAL keeps the total row even when the page is past the end.
+    private static final String PAGE_WITH_TOTAL_SQL = """
+            SELECT t.total_count, d.*
+            FROM (SELECT COALESCE(SUM(device_count), 0)::bigint AS total_count FROM device_counts %1$s) t
+            LEFT JOIN LATERAL (
+                SELECT * FROM devices %1$s
+                ORDER BY created_at DESC, id DESC
+                LIMIT :limit OFFSET :offset
+            ) d ON TRUE
+            ORDER BY d.created_at DESC, d.id DESC
+            """;
+    
+    private static final String COPY_DEVICES_SQL =
+            "COPY devices (name, brand, state, created_at) FROM STDIN";
+    
+    // Rows are sent to the server in CopyData messages of this many rows
+    private static final int COPY_ROWS_PER_MESSAGE = 256;
+    
+    private final DatabaseClient databaseClient;
+    private final R2dbcConverter converter;
+    private final int exportFetchSize;
+    
+    public DeviceSqlRepository(
+            R2dbcEntityTemplate template,
+            @Value("${devices.export.fetch-size:1000}") int exportFetchSize) {
+        this.databaseClient = template.getDatabaseClient();
+        this.converter = template.getConverter();
+        this.exportFetchSize = exportFetchSize;
+    }
+    
+    public Mono<DevicePage> findPage(long offset, int limit) {
+        return findPage("", null, offset, limit);
+    }
+    
+    public Mono<DevicePage> findPageByBrand(String brand, long offset, int limit) {
+        return findPage("WHERE brand = :filter", brand, offset, limit);
+    }
+    
+    public Mono<DevicePage> findPageByState(String state, long offset, int limit) {
+        return findPage("WHERE state = :filter", state, offset, limit);
+    }
+    
+    private Mono<DevicePage> findPage(String where, String filter, long offset, int limit) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(PAGE_WITH_TOTAL_SQL.formatted(where))
+                .bind("limit", limit)
+                .bind("offset", offset);
+        if (filter != null) {
+            spec = spec.bind("filter", filter);
+        }
+        return spec.map(this::readPageRow)
+                .all()
+                .collectList()
+                .map(rows -> new DevicePage(
+                        rows.stream().map(PageRow::device).filter(Objects::nonNull).toList(),
+                        rows.get(0).total()
+                ));
+    }
+    
+    /**
+     * Streams every device in ID order.
+     * 
+     * <p>The statement is executed with a fetch size, so the driver pulls rows from a
+     * server-side portal {@code devices.export.fetch-size} rows at a time, and only as
+     * fast as the subscriber requests them. Memory use does not depend on table size.
+     * 
+     * @return All devices, ordered by ID
+     */
+    public Flux<Device> streamAll() {
+        return databaseClient.sql("SELECT * FROM devices ORDER BY id")
+                .filter(statement -> statement.fetchSize(exportFetchSize))
+                .map(this::readDevice)
+                .all();
+    }
+    
+    /**
+     * Updates only the provided (non-null) columns of a device in a single statement,
+     * incrementing its version.
+     * 
+     * <p>When name or brand is provided, the row only matches if the device is not IN_USE,
+     * so the domain rule is checked atomically with the write. A non-null
+     * {@code expectedVersion} additionally requires the device to still be at that version.
+     * 
+     * @return Updated device, or empty if no device matched (not found, in use or changed)
+     */
+    public Mono<Device> updatePartially(Long id, String name, String brand, DeviceState state, Long expectedVersion) {
+        List<String> assignments = new ArrayList<>();
+        assignments.add("version = version + 1");
+        if (name != null) {
+            assignments.add("name = :name");
+        }
+        if (brand != null) {
+            assignments.add("brand = :brand");
+        }
+        if (state != null) {
+            assignments.add("state = :state");
+        }
+        
+        String sql = "UPDATE devices SET " + String.join(", ", assignments) + " WHERE id = :id"
+                + (name != null || brand != null ? " AND state <> 'IN_USE'" : "")
+                + (expectedVersion != null ? " AND version = :version" : "")
+                + " RETURNING *";
+        
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql).bind("id", id);
+        if (expectedVersion != null) {
+            spec = spec.bind("version", expectedVersion);
+        }
+        if (name != null) {
+            spec = spec.bind("name", name);
+        }
+        if (brand != null) {
+            spec = spec.bind("brand", brand);
+        }
+        if (state != null) {
+            spec = spec.bind("state", state.name());
+        }
+        return spec.map(this::readDevice).one();
+    }
+    
+    /**
+     * Inserts devices with one multi-row {@code INSERT ... RETURNING} statement.
+     * 
+     * <p>Callers bound the list size; every device adds four bind parameters.
+     * 
+     * @return Inserted devices with generated IDs, in the order they were given
+     */
+    public Flux<Device> insertAll(List<Device> devices) {
+        if (devices.isEmpty()) {
+            return Flux.empty();
+        }
+        
+        List<String> rows = new ArrayList<>(devices.size());
+        for (int i = 0; i < devices.size(); i++) {
+            rows.add("(:name%1$d, :brand%1$d, :state%1$d, :createdAt%1$d)".formatted(i));
+        }
+        String sql = "INSERT INTO devices (name, brand, state, created_at) VALUES "
+                + String.join(", ", rows) + " RETURNING *";
+        
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql);
+        for (int i = 0; i < devices.size(); i++) {
+            Device device = devices.get(i);
+            spec = spec.bind("name" + i, device.name())
+                    .bind("brand" + i, device.brand())
+                    .bind("state" + i, device.state().name())
+                    .bind("createdAt" + i, device.createdAt());
+        }
+        // IDs come from the sequence in VALUES order, so sorting by ID restores input order
+        return spec.map(this::readDevice)
+                .all()
+                .sort(Comparator.comparing(Device::id));
+    }
+    
+    /**
+     * Streams devices into the devices table with {@code COPY ... FROM STDIN}.
+     * 
+     * <p>Rows are encoded in COPY text format as they arrive and written with the
+     * connection's backpressure, so the input is never held in memory as a whole.
+     * COPY is a single statement: if the input fails, the server aborts it and
+     * no device is inserted.
+     * 
+     * @param devices Devices to insert; IDs are generated by the database
+     * @return Number of inserted devices
+     */
+    public Mono<Long> copyIn(Flux<Device> devices) {
+        AtomicReference<Throwable> inputError = new AtomicReference<>();
+        Flux<ByteBuf> rows = devices
+                .doOnError(inputError::set)
+                .map(DeviceSqlRepository::toCopyRow)
+                .buffer(COPY_ROWS_PER_MESSAGE)
+                .map(batch -> Unpooled.wrappedBuffer(String.join("", batch).getBytes(StandardCharsets.UTF_8)));
+        // An input error aborts the COPY and comes back as a server error; report the input's own error instead
+        return databaseClient.inConnection(connection -> postgresqlConnection(connection).copyIn(COPY_DEVICES_SQL, rows))
+                .onErrorMap(e -> inputError.get() != null, e -> inputError.get());
+    }
+    
+    private static PostgresqlConnection postgresqlConnection(Connection connection) {
+        Object current = connection;
+        while (!(current instanceof PostgresqlConnection) && current instanceof Wrapped<?> wrapped) {
+            current = wrapped.unwrap();
+        }
+        if (current instanceof PostgresqlConnection postgresqlConnection) {
+            return postgresqlConnection;
+        }
+        throw new IllegalStateException("COPY requires a PostgreSQL connection, got " + connection.getClass().getName());
+    }
+    
+    private static String toCopyRow(Device device) {
+        return escapeCopyValue(device.name()) + '\t'
+                + escapeCopyValue(device.brand()) + '\t'
+                + device.state().name() + '\t'
+                + device.createdAt() + '\n';
+    }
+    
+    private static String escapeCopyValue(String value) {
+        return value.replace("\\", "\\\\")
+                .replace("\t", "\\t")
+                .replace("\n", "\\n")
+                .replace("\r", "\\r");
+    }
+    
+    private Device readDevice(Row row, RowMetadata metadata) {
+        return converter.read(Device.class, row, metadata);
+    }
+    
+    private PageRow readPageRow(Row row, RowMetadata metadata) {
+        Device device = row.get("id") != null ? readDevice(row, metadata) : null;
+        return new PageRow(row.get("total_count", Long.class), device);
+    }
+    
+    private record PageRow(long total, Device device) {
+    }
+}
@@ -0,0 +1,30 @@
+package com.rdpk.device.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Periodically rebuilds the device_counts table used for list totals.
+ * 
+ * <p>Runs on {@code devices.counts.reconciliation-cron} (daily at 03:00 by default,
+ * {@code -} disables it).
+ */
+@Service
+public class DeviceCountReconciliationService {
+    
+    private static final Logger log = LoggerFactory.getLogger(DeviceCountReconciliationService.class);
+    
+    private final DeviceService deviceService;
+    
+    public DeviceCountReconciliationService(DeviceService deviceService) {
+        this.deviceService = deviceService;
+    }
+    
+    @Scheduled(cron = "${devices.counts.reconciliation-cron:0 0 3 * * *}")
+    public void reconcile() {
+        Long total = deviceService.rebuildDeviceCounts().block();
+        log.info("Device counts rebuilt: {} devices", total);
+    }
+}
@@ -1,95 +1,458 @@
 package com.rdpk.device.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.rdpk.device.domain.Device;
+import com.rdpk.device.domain.DevicePage;
 import com.rdpk.device.domain.DeviceState;
 import com.rdpk.device.exception.DeviceDeletionException;
 import com.rdpk.device.exception.DeviceNotFoundException;
+import com.rdpk.device.exception.DevicePreconditionFailedException;
 import com.rdpk.device.exception.DeviceUpdateException;
 import com.rdpk.device.repository.DeviceRepository;
+import com.rdpk.device.repository.DeviceSqlRepository;
+import com.rdpk.device.support.AdaptiveConcurrencyLimiter;
+import com.rdpk.device.support.ReadRouting;
+import com.rdpk.device.support.RetryBudget;
+import com.rdpk.device.support.SingleFlight;
+import com.rdpk.device.support.Workload;
+import com.rdpk.device.support.WriteCoalescer;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
 import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
-import io.github.resilience4j.reactor.retry.RetryOperator;
 import io.github.resilience4j.reactor.timelimiter.TimeLimiterOperator;
 import io.github.resilience4j.retry.RetryRegistry;
 import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
 
 import java.time.Clock;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.IntStream;
 
 @Service
 public class DeviceService {
     
+    // 500 rows x 4 columns keeps each INSERT well below PostgreSQL's 65535 bind parameter limit
+    private static final int INSERT_CHUNK_SIZE = 500;
+    
+    // Resilience profiles, each with its own bulkhead, circuit breaker, retry and time limiter
+    // instance, so a struggling or bursting operation family cannot open the breaker for the
+    // others or take all database concurrency.
+    // Writes are not retried by default: a retry after a lost response could apply them twice.
+    private static final String LOOKUP_PROFILE = "device-lookups";
+    private static final String LIST_PROFILE = "device-lists";
+    private static final String COUNT_PROFILE = "device-counts";
+    private static final String WRITE_PROFILE = "device-writes";
+    private static final String BULK_PROFILE = "device-bulk";
+    
     private final DeviceRepository deviceRepository;
+    private final DeviceSqlRepository deviceSqlRepository;
+    private final BulkheadRegistry bulkheadRegistry;
     private final CircuitBreakerRegistry circuitBreakerRegistry;
     private final RetryRegistry retryRegistry;
     private final TimeLimiterRegistry timeLimiterRegistry;
+    private final RetryBudget retryBudget;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final Cache<Long, Device> deviceCache;
+    private final TransactionalOperator transactionalOperator;
+    private final WriteCoalescer<Device, Device> createCoalescer;
+    private final ReadRouting readRouting;
     private final Clock clock;
     
+    // Bumped before every cache invalidation; a load only caches its result if no
+    // invalidation happened since it started, so a late load cannot revive a removed device
+    private final AtomicLong cacheInvalidations = new AtomicLong();
+    
+    // Concurrent identical reads share one query (keys: read target plus device id or page/count parameters)
+    private final SingleFlight<List<Object>, Device> deviceLoads;
+    private final SingleFlight<List<Object>, DevicePage> pageLoads;
+    private final SingleFlight<List<Object>, List<Device>> listLoads;
+    private final SingleFlight<List<Object>, Long> countLoads;
+    
     public DeviceService(
             DeviceRepository deviceRepository,
+            DeviceSqlRepository deviceSqlRepository,
+            BulkheadRegistry bulkheadRegistry,
             CircuitBreakerRegistry circuitBreakerRegistry,
             RetryRegistry retryRegistry,
             TimeLimiterRegistry timeLimiterRegistry,
+            RetryBudget retryBudget,
+            AdaptiveConcurrencyLimiter concurrencyLimiter,
+            Cache<Long, Device> deviceCache,
+            TransactionalOperator transactionalOperator,
+            ObjectProvider<WriteCoalescer<Device, Device>> createCoalescer,
+            ReadRouting readRouting,
+            MeterRegistry meterRegistry,
             Clock clock) {
         this.deviceRepository = deviceRepository;
+        this.deviceSqlRepository = deviceSqlRepository;
+        this.bulkheadRegistry = bulkheadRegistry;
         this.circuitBreakerRegistry = circuitBreakerRegistry;
         this.retryRegistry = retryRegistry;
         this.timeLimiterRegistry = timeLimiterRegistry;
+        this.retryBudget = retryBudget;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.deviceCache = deviceCache;
+        this.transactionalOperator = transactionalOperator;
+        this.createCoalescer = createCoalescer.getIfAvailable();
+        this.readRouting = readRouting;
         this.clock = clock;
+        this.deviceLoads = new SingleFlight<>("device", meterRegistry);
+        this.pageLoads = new SingleFlight<>("device-page", meterRegistry);
+        this.listLoads = new SingleFlight<>("device-list", meterRegistry);
+        this.countLoads = new SingleFlight<>("device-count", meterRegistry);
+    }
+    
+    // Applies the circuit breaker, retry and time limiter instances of a resilience profile;
+    // calls that succeed on their first attempt fund the shared retry budget that the retry
+    // backoff draws from.
+    // The profile's bulkhead is outermost, so calls it rejects fail fast without touching the
+    // breaker or retry. The concurrency limit wraps each attempt only, so no permit is held
+    // while a retry backs off; its rejections are ignored by breakers and never retried.
+    private <T> Mono<T> applyResilience(String profile, Mono<T> mono) {
+        return isolate(profile, retryBudget.retry(retryRegistry.retry(profile), limitConcurrency(mono)
+                        .transformDeferred(CircuitBreakerOperator.of(circuitBreakerRegistry.circuitBreaker(profile))))
+                .transformDeferred(TimeLimiterOperator.of(timeLimiterRegistry.timeLimiter(profile))));
+    }
+    
+    private <T> Flux<T> applyResilience(String profile, Flux<T> flux) {
+        return isolate(profile, retryBudget.retry(retryRegistry.retry(profile), limitConcurrency(flux)
+                        .transformDeferred(CircuitBreakerOperator.of(circuitBreakerRegistry.circuitBreaker(profile))))
+                .transformDeferred(TimeLimiterOperator.of(timeLimiterRegistry.timeLimiter(profile))));
+    }
+    
+    // Same without the retry, for writes that a retry could apply twice
+    private <T> Flux<T> applyResilienceWithoutRetry(String profile, Flux<T> flux) {
+        return isolate(profile, limitConcurrency(flux)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreakerRegistry.circuitBreaker(profile)))
+                .transformDeferred(TimeLimiterOperator.of(timeLimiterRegistry.timeLimiter(profile))));
     }
     
-    private <T> Mono<T> applyResilience(Mono<T> mono) {
-        return mono
-                .transformDeferred(CircuitBreakerOperator.of(circuitBreakerRegistry.circuitBreaker("devices")))
-                .transformDeferred(RetryOperator.of(retryRegistry.retry("devices")))
-                .transformDeferred(TimeLimiterOperator.of(timeLimiterRegistry.timeLimiter("devices")));
+    // Caps the concurrent calls of one operation family, so a burst of lists or exports cannot
+    // take the connections that lookups and writes need
+    private <T> Mono<T> isolate(String profile, Mono<T> operation) {
+        return operation.transformDeferred(BulkheadOperator.of(bulkheadRegistry.bulkhead(profile)));
     }
     
-    private <T> Flux<T> applyResilience(Flux<T> flux) {
-        return flux
-                .transformDeferred(CircuitBreakerOperator.of(circuitBreakerRegistry.circuitBreaker("devices")))
-                .transformDeferred(RetryOperator.of(retryRegistry.retry("devices")))
-                .transformDeferred(TimeLimiterOperator.of(timeLimiterRegistry.timeLimiter("devices")));
+    private <T> Flux<T> isolate(String profile, Flux<T> operation) {
+        return operation.transformDeferred(BulkheadOperator.of(bulkheadRegistry.bulkhead(profile)));
     }
     
+    // Bulk work is exempt: it has its own pool, and its long runtimes would distort the
+    // latency the limit adapts to
+    private <T> Mono<T> limitConcurrency(Mono<T> operation) {
+        return Mono.deferContextual(context -> isBulk(context) ? operation : concurrencyLimiter.limit(operation));
+    }
+    
+    private <T> Flux<T> limitConcurrency(Flux<T> operation) {
+        return Flux.deferContextual(context -> isBulk(context) ? operation : concurrencyLimiter.limit(operation));
+    }
+    
+    private static boolean isBulk(ContextView context) {
+        return context.getOrDefault(Workload.CONTEXT_KEY, Workload.OLTP) == Workload.BULK;
+    }
+    
+    // List and count reads run on the query pool, and on the read replica when allowed
+    private <T> Mono<T> query(Function<ReadRouting.Target, Mono<T>> read) {
+        return Workload.QUERY.run(readRouting.read(read));
+    }
+    
+    private <T> Mono<T> query(Mono<T> read) {
+        return Workload.QUERY.run(readRouting.read(read));
+    }
+    
+    private <T> Flux<T> query(Flux<T> read) {
+        return Workload.QUERY.run(readRouting.read(read));
+    }
+    
+    /**
+     * Creates a device.
+     * 
+     * <p>With {@code devices.create-coalescing.enabled=true}, concurrent creates are collected
+     * for a short window and written together by one multi-row INSERT; otherwise each create
+     * is its own INSERT. If a batch INSERT fails, its devices are inserted one by one, so an
+     * invalid device only fails its own create.
+     * 
+     * @param name Device name
+     * @param brand Device brand
+     * @return Created device
+     */
     public Mono<Device> createDevice(String name, String brand) {
         LocalDateTime now = LocalDateTime.now(clock);
         Device newDevice = new Device(null, name, brand, DeviceState.AVAILABLE, now);
-        return applyResilience(deviceRepository.save(newDevice));
+        Mono<Device> insert = createCoalescer != null
+                ? createCoalescer.submit(newDevice)
+                : deviceRepository.save(newDevice);
+        return applyResilience(WRITE_PROFILE, insert);
+    }
+    
+    /**
+     * Creates many devices in one transaction.
+     * 
+     * <p>Devices are inserted in chunks of {@value #INSERT_CHUNK_SIZE} rows, one multi-row
+     * INSERT per chunk, instead of one statement and round trip per device. Only name and
+     * brand are taken from the given devices; all are created AVAILABLE with the same
+     * creation time. If any chunk fails the whole batch is rolled back.
+     * 
+     * <p>Runs under the bulk profile, so large batches cannot take the bulkhead slots of
+     * single writes. It is not retried: a retry after a lost commit would insert the batch twice.
+     * 
+     * @param devices Devices to create, in order
+     * @return Created devices, in the same order
+     */
+    public Flux<Device> createDevices(List<Device> devices) {
+        if (devices.isEmpty()) {
+            return Flux.empty();
+        }
+        LocalDateTime now = LocalDateTime.now(clock);
+        List<Device> newDevices = devices.stream()
+                .map(device -> new Device(device.name(), device.brand(), now))
+                .toList();
+        List<List<Device>> chunks = IntStream.range(0, (newDevices.size() + INSERT_CHUNK_SIZE - 1) / INSERT_CHUNK_SIZE)
+                .mapToObj(i -> newDevices.subList(i * INSERT_CHUNK_SIZE,
+                        Math.min(newDevices.size(), (i + 1) * INSERT_CHUNK_SIZE)))
+                .toList();
+        Flux<Device> inserted = Flux.fromIterable(chunks)
+                .concatMap(deviceSqlRepository::insertAll);
+        return Workload.BULK.run(applyResilienceWithoutRetry(BULK_PROFILE, transactionalOperator.transactional(inserted)));
     }
     
+    /**
+     * Streams devices into the database with PostgreSQL COPY.
+     * 
+     * <p>Meant for migrations too large for {@link #createDevices}: devices are written as
+     * they arrive, with backpressure from the database. Only name and brand are taken from
+     * the given devices; all are created AVAILABLE with the same creation time. An error in
+     * the input aborts the COPY, so either every device is imported or none is.
+     * 
+     * <p>Only the bulkhead and circuit breaker apply: the input can be consumed once, so the import
+     * cannot be retried, and its duration grows with the input, so it has no time limit.
+     * 
+     * @param devices Devices to import
+     * @return Number of imported devices
+     */
+    public Mono<Long> importDevices(Flux<Device> devices) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        return Workload.BULK.run(isolate(BULK_PROFILE, deviceSqlRepository.copyIn(devices.map(device -> new Device(device.name(), device.brand(), now)))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreakerRegistry.circuitBreaker(BULK_PROFILE)))));
+    }
+    
+    /**
+     * Streams the full device inventory, ordered by ID.
+     * 
+     * <p>Rows are fetched from the database as the caller consumes them. Only the bulkhead
+     * and circuit breaker apply: a retry would replay rows already emitted, and the duration
+     * grows with the table, so there is no time limit.
+     * 
+     * @return All devices
+     */
+    public Flux<Device> exportDevices() {
+        return Workload.BULK.run(isolate(BULK_PROFILE, deviceSqlRepository.streamAll()
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreakerRegistry.circuitBreaker(BULK_PROFILE)))));
+    }
+    
+    /**
+     * Gets a device by ID, reading through the in-process device cache.
+     * 
+     * <p>Cache misses load the device from the database and populate the cache.
+     * Concurrent misses for the same id share one query.
+     * Entries are refreshed by {@link #updateDevice} and invalidated by {@link #deleteDevice}.
+     * A load that read the row before a concurrent write never replaces the newer entry
+     * (versions are compared) nor brings back an invalidated one.
+     * 
+     * <p>Misses may be served by the read replica (see {@link ReadRouting}). Devices read
+     * from the replica are not cached, since a lagging replica could otherwise put back an
+     * entry that a write has just refreshed or invalidated.
+     * 
+     * @param id Device ID
+     * @return Device
+     * @throws DeviceNotFoundException if device not found
+     */
     public Mono<Device> getDeviceById(Long id) {
-        return applyResilience(deviceRepository.findById(id))
+        return Mono.defer(() -> Mono.justOrEmpty(deviceCache.getIfPresent(id)))
+                .switchIfEmpty(readRouting.read(target -> deviceLoads.execute(List.of(target, id), () -> {
+                    long invalidations = cacheInvalidations.get();
+                    return applyResilience(LOOKUP_PROFILE, deviceRepository.findById(id))
+                            .doOnNext(device -> cacheLoaded(target, device, invalidations));
+                })))
                 .switchIfEmpty(Mono.error(new DeviceNotFoundException("Device not found")));
     }
     
+    // Devices loaded from the replica may be stale, so only primary reads populate the cache.
+    // invalidations is the counter value from before the row was read.
+    private void cacheLoaded(ReadRouting.Target target, Device device, long invalidations) {
+        if (target == ReadRouting.Target.PRIMARY) {
+            deviceCache.asMap().compute(device.id(), (id, cached) ->
+                    cacheInvalidations.get() != invalidations ? cached : newer(cached, device));
+        }
+    }
+    
+    // Writes can return in a different order than they committed, so keep the higher version
+    private void cacheWritten(Device device) {
+        deviceCache.asMap().merge(device.id(), device, DeviceService::newer);
+    }
+    
+    // Counted before removing, so a load racing the removal sees the change either way
+    private void invalidateCached(Long id) {
+        cacheInvalidations.incrementAndGet();
+        deviceCache.invalidate(id);
+    }
+    
+    private static Device newer(Device cached, Device candidate) {
+        return cached == null || candidate.version() > cached.version() ? candidate : cached;
+    }
+    
+    /**
+     * Gets many devices by ID, reading through the device cache.
+     * 
+     * <p>Cached devices are served from memory and all remaining ids are loaded with a
+     * single query, which then populates the cache unless it ran on the read replica.
+     * Unknown ids are skipped.
+     * 
+     * @param ids Device IDs
+     * @return Found devices, in no particular order
+     */
+    public Flux<Device> getDevicesByIds(Collection<Long> ids) {
+        return Flux.defer(() -> {
+            long invalidations = cacheInvalidations.get();
+            Map<Long, Device> cached = deviceCache.getAllPresent(ids);
+            Long[] misses = ids.stream()
+                    .filter(id -> !cached.containsKey(id))
+                    .toArray(Long[]::new);
+            if (misses.length == 0) {
+                return Flux.fromIterable(cached.values());
+            }
+            return Flux.concat(
+                    Flux.fromIterable(cached.values()),
+                    Workload.QUERY.run(readRouting.readMany(target -> applyResilience(LOOKUP_PROFILE, deviceRepository.findByIds(misses))
+                            .doOnNext(device -> cacheLoaded(target, device, invalidations))))
+            );
+        });
+    }
+    
     // Pagination methods
+    // Concurrent calls with the same parameters share one query (see SingleFlight).
     public Flux<Device> getAllDevices(Pageable pageable) {
-        return applyResilience(deviceRepository.findAllByOrderByCreatedAtDesc(pageable));
+        return query(target -> listLoads.execute(List.of(target, "all", pageable.getOffset(), pageable.getPageSize()),
+                        () -> applyResilience(LIST_PROFILE, deviceRepository.findAllByOrderByCreatedAtDescIdDesc(pageable)).collectList()))
+                .flatMapMany(Flux::fromIterable);
     }
     
     public Mono<Long> countAllDevices() {
-        return applyResilience(deviceRepository.count());
+        return query(target -> countLoads.execute(List.of(target, "all"),
+                () -> applyResilience(COUNT_PROFILE, deviceRepository.countAllDevices())));
     }
     
     public Flux<Device> getDevicesByBrand(String brand, Pageable pageable) {
-        return applyResilience(deviceRepository.findByBrand(brand, pageable));
+        return query(target -> listLoads.execute(List.of(target, "brand", brand, pageable.getOffset(), pageable.getPageSize()),
+                        () -> applyResilience(LIST_PROFILE, deviceRepository.findByBrandOrderByCreatedAtDescIdDesc(brand, pageable)).collectList()))
+                .flatMapMany(Flux::fromIterable);
     }
     
     public Mono<Long> countByBrand(String brand) {
-        return applyResilience(deviceRepository.countByBrand(brand));
+        return query(target -> countLoads.execute(List.of(target, "brand", brand),
+                () -> applyResilience(COUNT_PROFILE, deviceRepository.countByBrand(brand))));
     }
     
     public Flux<Device> getDevicesByState(DeviceState state, Pageable pageable) {
-        return applyResilience(deviceRepository.findByState(state, pageable));
+        return query(target -> listLoads.execute(List.of(target, "state", state, pageable.getOffset(), pageable.getPageSize()),
+                        () -> applyResilience(LIST_PROFILE, deviceRepository.findByStateOrderByCreatedAtDescIdDesc(state, pageable)).collectList()))
+                .flatMapMany(Flux::fromIterable);
     }
     
     public Mono<Long> countByState(DeviceState state) {
-        return applyResilience(deviceRepository.countByState(state));
+        return query(target -> countLoads.execute(List.of(target, "state", state),
+                () -> applyResilience(COUNT_PROFILE, deviceRepository.countByState(state.name()))));
+    }
+    
+    // Page methods (page content and total in a single statement)
+    public Mono<DevicePage> getAllDevicesPage(Pageable pageable) {
+        return query(target -> pageLoads.execute(List.of(target, "all", pageable.getOffset(), pageable.getPageSize()),
+                () -> applyResilience(LIST_PROFILE, deviceSqlRepository.findPage(pageable.getOffset(), pageable.getPageSize()))));
+    }
+    
+    public Mono<DevicePage> getDevicesByBrandPage(String brand, Pageable pageable) {
+        return query(target -> pageLoads.execute(List.of(target, "brand", brand, pageable.getOffset(), pageable.getPageSize()),
+                () -> applyResilience(LIST_PROFILE, deviceSqlRepository.findPageByBrand(brand, pageable.getOffset(), pageable.getPageSize()))));
+    }
+    
+    public Mono<DevicePage> getDevicesByStatePage(DeviceState state, Pageable pageable) {
+        return query(target -> pageLoads.execute(List.of(target, "state", state, pageable.getOffset(), pageable.getPageSize()),
+                () -> applyResilience(LIST_PROFILE, deviceSqlRepository.findPageByState(state.name(), pageable.getOffset(), pageable.getPageSize()))));
+    }
+    
+    // Slice methods (pagination without totals)
+    // Return up to 'limit' devices starting at 'offset' in createdAt DESC, id DESC order.
+    public Flux<Device> getAllDevicesSlice(long offset, int limit) {
+        return query(applyResilience(LIST_PROFILE, deviceRepository.findSlice(offset, limit)));
+    }
+    
+    public Flux<Device> getDevicesByBrandSlice(String brand, long offset, int limit) {
+        return query(applyResilience(LIST_PROFILE, deviceRepository.findSliceByBrand(brand, offset, limit)));
+    }
+    
+    public Flux<Device> getDevicesByStateSlice(DeviceState state, long offset, int limit) {
+        return query(applyResilience(LIST_PROFILE, deviceRepository.findSliceByState(state.name(), offset, limit)));
+    }
+    
+    /**
+     * Reads the table-level change sequence of devices, then runs the reads it describes.
+     * 
+     * <p>It is the sum of the change counters in device_counts. Every statement that
+     * inserts, updates or deletes devices bumps the counters of the (brand, state) pairs it
+     * touches in the same transaction, so an unchanged value means every list result is
+     * still current, while writes to different pairs never wait on each other.
+     * The sequence is read before the data it describes, and both run on the same database
+     * (see {@link ReadRouting#sameTarget}): a write that commits in between then only causes
+     * a spurious refetch, and a lagging replica only makes the sequence older, never newer
+     * than the data served with it.
+     * 
+     * @param reads Reads the sequence describes, given the sequence
+     * @return Result of the reads
+     */
+    public <T> Mono<T> withChangeSequence(Function<Long, Mono<T>> reads) {
+        // One row per brand and state, read on the OLTP pool of the shared target, so a 304 never waits behind list queries
+        return readRouting.sameTarget(
+                readRouting.read(applyResilience(LOOKUP_PROFILE, deviceRepository.findChangeSequence()))
+                        .flatMap(reads));
+    }
+    
+    /**
+     * Rebuilds the device_counts table from the devices table.
+     * 
+     * <p>Counts are kept exact by database triggers; this is a reconciliation safety net
+     * (e.g. after manual data fixes with triggers disabled).
+     * 
+     * @return Total number of devices after the rebuild
+     */
+    public Mono<Long> rebuildDeviceCounts() {
+        return Workload.BULK.run(applyResilience(BULK_PROFILE, deviceRepository.rebuildDeviceCounts()));
+    }
+    
+    // Keyset (cursor) pagination methods
+    // Return up to 'limit' devices strictly after (createdAt, id) in createdAt DESC, id DESC order.
+    public Flux<Device> getAllDevicesAfter(LocalDateTime createdAt, Long id, int limit) {
+        return query(applyResilience(LIST_PROFILE, deviceRepository.findAllAfter(createdAt, id, limit)));
+    }
+    
+    public Flux<Device> getDevicesByBrandAfter(String brand, LocalDateTime createdAt, Long id, int limit) {
+        return query(applyResilience(LIST_PROFILE, deviceRepository.findByBrandAfter(brand, createdAt, id, limit)));
+    }
+    
+    public Flux<Device> getDevicesByStateAfter(DeviceState state, LocalDateTime createdAt, Long id, int limit) {
+        return query(applyResilience(LIST_PROFILE, deviceRepository.findByStateAfter(state.name(), createdAt, id, limit)));
     }
     
     /**
@@ -104,6 +467,10 @@ public class DeviceService {
      *   <li>State can always be updated regardless of current state</li>
      * </ul>
      * 
+     * <p>The update and the IN_USE check run as a single conditional UPDATE, so concurrent
+     * PATCHes cannot interleave between check and write. Only when no row is updated does a
+     * second probe run to tell "not found" apart from "in use".
+     * 
      * @param id Device ID to update
      * @param name New name (null = don't update)
      * @param brand New brand (null = don't update)
@@ -113,60 +480,147 @@ public class DeviceService {
      * @throws DeviceUpdateException if attempting to update name/brand of device in use
      */
     public Mono<Device> updateDevice(Long id, String name, String brand, DeviceState state) {
-        return applyResilience(deviceRepository.findById(id))
-                .switchIfEmpty(Mono.error(new DeviceNotFoundException("Device not found")))
-                .flatMap(device -> {
-                    if (device.isInUse() && (name != null || brand != null)) {
-                        return Mono.error(new DeviceUpdateException(
-                            "Cannot update name or brand of device in use"
-                        ));
-                    }
-                    return performUpdate(device, name, brand, state);
-                });
+        return updateDevice(id, name, brand, state, null);
     }
     
     /**
-     * Performs the partial update by applying only non-null fields.
+     * Partially updates a device if it is still at the expected version.
      * 
-     * <p>This method implements the core partial update logic:
-     * - Null parameters = field not updated (keeps existing value)
-     * - Non-null parameters = field updated to new value
+     * <p>Same as {@link #updateDevice(Long, String, String, DeviceState)}, with the version
+     * check added to the conditional UPDATE, so a concurrent change is never overwritten.
+     * Every successful update increments the version.
      * 
-     * @param device Existing device from database
-     * @param name New name value (null = keep existing)
-     * @param brand New brand value (null = keep existing)
-     * @param state New state value (null = keep existing)
+     * @param expectedVersion Version the caller last saw (null = any version)
      * @return Updated device
+     * @throws DevicePreconditionFailedException if the device is no longer at the expected version
      */
-    private Mono<Device> performUpdate(Device device, String name, String brand, DeviceState state) {
-        Device updated = device;
-        
-        if (name != null) {
-            updated = updated.withName(name);
-        }
-        
-        if (brand != null) {
-            updated = updated.withBrand(brand);
+    public Mono<Device> updateDevice(Long id, String name, String brand, DeviceState state, Long expectedVersion) {
+        if (name == null && brand == null && state == null) {
+            return getDeviceById(id)
+                    .flatMap(device -> requireVersion(device, expectedVersion));
         }
-        
-        if (state != null) {
-            updated = updated.withState(state);
+        return applyResilience(WRITE_PROFILE, deviceSqlRepository.updatePartially(id, name, brand, state, expectedVersion))
+                .switchIfEmpty(Mono.defer(() -> rejectUpdate(id, expectedVersion)))
+                .doOnNext(this::cacheWritten);
+    }
+    
+    /**
+     * Explains why a conditional update matched no row.
+     * 
+     * @param id Device ID that was not updated
+     * @param expectedVersion Version the update required, or null
+     * @return Error with DeviceNotFoundException if the device does not exist,
+     *         DevicePreconditionFailedException if it changed since the expected version,
+     *         DeviceUpdateException otherwise (device in use)
+     */
+    private Mono<Device> rejectUpdate(Long id, Long expectedVersion) {
+        return applyResilience(LOOKUP_PROFILE, deviceRepository.findById(id))
+                .switchIfEmpty(Mono.error(new DeviceNotFoundException("Device not found")))
+                .flatMap(current -> requireVersion(current, expectedVersion))
+                .flatMap(current -> Mono.error(new DeviceUpdateException("Cannot update name or brand of device in use")));
+    }
+    
+    private static Mono<Device> requireVersion(Device device, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(device.version())) {
+            return Mono.error(new DevicePreconditionFailedException("Device has been modified"));
         }
-        
-        return applyResilience(deviceRepository.save(updated));
+        return Mono.just(device);
+    }
+    
+    /**
+     * Moves the given devices to a target state with one set-based UPDATE.
+     * 
+     * <p>State changes are allowed in every state (see {@link #updateDevice}), so the only
+     * condition is that a device is not already in the target state. Unknown ids are ignored.
+     * 
+     * <p>Runs under the bulk profile without retry, like {@link #transitionStatesMatching}.
+     * 
+     * @param ids Devices to transition
+     * @param target State to move them to
+     * @return IDs of the devices whose state changed
+     */
+    public Flux<Long> transitionStates(List<Long> ids, DeviceState target) {
+        return Workload.BULK.run(applyResilienceWithoutRetry(BULK_PROFILE,
+                        deviceRepository.transitionStateByIds(ids.toArray(Long[]::new), target.name())))
+                .doOnNext(this::invalidateCached);
+    }
+    
+    /**
+     * Moves every device matching a brand and/or state filter to a target state with one
+     * set-based UPDATE.
+     * 
+     * <p>Runs under the bulk profile like other bulk work. It is not retried, so the returned
+     * IDs are never reported twice.
+     * 
+     * @param brand Brand filter (null = any brand)
+     * @param state Current state filter (null = any state)
+     * @param target State to move them to
+     * @return IDs of the devices whose state changed
+     */
+    public Flux<Long> transitionStatesMatching(String brand, DeviceState state, DeviceState target) {
+        return Workload.BULK.run(applyResilienceWithoutRetry(BULK_PROFILE, deviceRepository.transitionStateByFilter(
+                        brand, state != null ? state.name() : null, target.name())))
+                .doOnNext(this::invalidateCached);
+    }
+    
+    /**
+     * Atomically claims up to {@code count} AVAILABLE devices of a brand, marking them IN_USE.
+     * 
+     * <p>Rows are picked and transitioned in one statement with {@code FOR UPDATE SKIP LOCKED},
+     * so concurrent claimers never receive the same device and do not wait on each other.
+     * Claims are not retried: a retry after a lost response would claim further devices.
+     * 
+     * @param brand Brand to claim devices of
+     * @param count Maximum number of devices to claim
+     * @return Claimed devices; fewer than {@code count} (or none) when not enough are available
+     */
+    public Flux<Device> claimDevices(String brand, int count) {
+        return applyResilienceWithoutRetry(WRITE_PROFILE, deviceRepository.claimAvailable(brand, count))
+                .doOnNext(this::cacheWritten);
     }
     
+    /**
+     * Deletes a device if it is AVAILABLE.
+     * 
+     * <p>The deletability check and the delete run as one conditional DELETE. Only when
+     * nothing is deleted does a probe run to tell "not found" apart from "not deletable".
+     * 
+     * @param id Device ID to delete
+     * @throws DeviceNotFoundException if device not found
+     * @throws DeviceDeletionException if device is in use or inactive
+     */
     public Mono<Void> deleteDevice(Long id) {
-        return applyResilience(deviceRepository.findById(id))
+        return deleteDevice(id, null);
+    }
+    
+    /**
+     * Deletes a device if it is AVAILABLE and still at the expected version.
+     * 
+     * @param id Device ID to delete
+     * @param expectedVersion Version the caller last saw (null = any version)
+     * @throws DevicePreconditionFailedException if the device is no longer at the expected version
+     */
+    public Mono<Void> deleteDevice(Long id, Long expectedVersion) {
+        return applyResilience(WRITE_PROFILE, deviceRepository.deleteIfAvailable(id, expectedVersion))
+                .switchIfEmpty(Mono.defer(() -> rejectDeletion(id, expectedVersion)))
+                .doOnNext(this::invalidateCached)
+                .then();
+    }
+    
+    /**
+     * Explains why a conditional delete removed no row.
+     * 
+     * @param id Device ID that was not deleted
+     * @param expectedVersion Version the delete required, or null
+     * @return Error with DeviceNotFoundException if the device does not exist,
+     *         DevicePreconditionFailedException if it changed since the expected version,
+     *         DeviceDeletionException otherwise (device in use or inactive)
+     */
+    private Mono<Long> rejectDeletion(Long id, Long expectedVersion) {
+        return applyResilience(LOOKUP_PROFILE, deviceRepository.findById(id))
                 .switchIfEmpty(Mono.error(new DeviceNotFoundException("Device not found")))
-                .flatMap(device -> {
-                    if (!device.isDeletable()) {
-                        return Mono.error(new DeviceDeletionException(
-                            "Cannot delete device that is in use or inactive"
-                        ));
-                    }
-                    return applyResilience(deviceRepository.deleteById(id));
-                });
+                .flatMap(current -> requireVersion(current, expectedVersion))
+                .flatMap(current -> Mono.error(new DeviceDeletionException("Cannot delete device that is in use or inactive")));
     }
 }
 
@@ -0,0 +1,214 @@
+package com.rdpk.device.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Limits in-flight database operations to a limit that adapts to measured latency.
+ *
+ * <p>Gradient algorithm: each completed operation updates a short-term average latency and a
+ * slow-moving baseline. While the short-term latency stays within {@code tolerance} times the
+ * baseline, the limit grows by about its square root per update; when queueing pushes latency
+ * above that, the limit shrinks in proportion (at most by half per update). Updates are
+ * smoothed and the limit stays within {@code [minLimit, maxLimit]}. The limit does not grow
+ * while fewer than half of it are in use, since that says nothing about a larger limit.
+ *
+ * <p>Successful operations and timeouts are measured; other failures only release their
+ * permit, so fast failures (e.g. an open circuit breaker) cannot drag the latency down. A
+ * cancelled operation took at least as long as it ran, so it is measured only when that
+ * already exceeds the short-term latency, as when a time limiter around it gives up.
+ * Operations over the limit fail immediately with the configured rejection.
+ *
+ * <p>Publishes {@code db.concurrency.limit}, {@code db.concurrency.in.flight} and the
+ * {@code db.concurrency.rejections} counter.
+ */
+public class AdaptiveConcurrencyLimiter {
+    
+    // Samples averaged into the short-term latency
+    private static final int SHORT_WINDOW = 10;
+    
+    private final boolean enabled;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final double baselineWeight;
+    private final Supplier<? extends RuntimeException> rejection;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter rejections;
+    
+    private volatile double limit;
+    
+    // Guarded by this
+    private double shortRtt;
+    private double baselineRtt;
+    
+    /**
+     * @param enabled Whether operations are limited; when false {@link #limit(Mono)} returns its argument
+     * @param initialLimit Limit before any latency was measured
+     * @param minLimit Lowest limit, kept even under sustained slowness
+     * @param maxLimit Highest limit
+     * @param tolerance Short-term latency over baseline accepted before the limit shrinks, e.g. 1.5
+     * @param smoothing Share of each computed limit applied per update, between 0 and 1
+     * @param baselineWindow Samples averaged into the baseline latency
+     * @param rejection Creates the error for operations over the limit
+     * @param meterRegistry Registry for limiter metrics
+     */
+    public AdaptiveConcurrencyLimiter(
+            boolean enabled,
+            int initialLimit,
+            int minLimit,
+            int maxLimit,
+            double tolerance,
+            double smoothing,
+            int baselineWindow,
+            Supplier<? extends RuntimeException> rejection,
+            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.baselineWeight = 2.0 / (baselineWindow + 1);
+        this.rejection = rejection;
+        this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+        this.rejections = Counter.builder("db.concurrency.rejections")
+                .description("Database operations rejected by the adaptive concurrency limit")
+                .register(meterRegistry);
+        Gauge.builder("db.concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive limit of in-flight database operations")
+                .register(meterRegistry);
+        Gauge.builder("db.concurrency.in.flight", inFlight, AtomicInteger::get)
+                .description("Database operations currently holding a permit")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Runs an operation if a permit is free, otherwise fails with the rejection error.
+     */
+    public <T> Mono<T> limit(Mono<T> operation) {
+        if (!enabled) {
+            return operation;
+        }
+        return Mono.defer(() -> {
+            if (!tryAcquire()) {
+                rejections.increment();
+                return Mono.error(rejection.get());
+            }
+            Permit permit = new Permit(System.nanoTime());
+            return operation
+                    .doOnSuccess(result -> permit.release(true))
+                    .doOnError(error -> permit.release(error instanceof TimeoutException))
+                    .doOnCancel(permit::releaseCancelled);
+        });
+    }
+    
+    /**
+     * Same as {@link #limit(Mono)} for operations returning several rows; the permit is held
+     * until the stream ends.
+     */
+    public <T> Flux<T> limit(Flux<T> operation) {
+        if (!enabled) {
+            return operation;
+        }
+        return Flux.defer(() -> {
+            if (!tryAcquire()) {
+                rejections.increment();
+                return Flux.error(rejection.get());
+            }
+            Permit permit = new Permit(System.nanoTime());
+            return operation
+                    .doOnComplete(() -> permit.release(true))
+                    .doOnError(error -> permit.release(error instanceof TimeoutException))
+                    .doOnCancel(permit::releaseCancelled);
+        });
+    }
+    
+    /**
+     * Current limit of in-flight operations.
+     */
+    public double getLimit() {
+        return limit;
+    }
+    
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+    
+    // Package-private so tests can feed latencies without timing real operations
+    synchronized void sample(long rttNanos) {
+        if (baselineRtt == 0) {
+            shortRtt = rttNanos;
+            baselineRtt = rttNanos;
+            return;
+        }
+        shortRtt += (rttNanos - shortRtt) * 2.0 / (SHORT_WINDOW + 1);
+        baselineRtt += (rttNanos - baselineRtt) * baselineWeight;
+        // Let the baseline follow a lasting latency drop (e.g. after a slow period ends) quickly
+        if (baselineRtt > 2 * shortRtt) {
+            baselineRtt *= 0.95;
+        }
+        double gradient = tolerance * baselineRtt / shortRtt;
+        double target = gradient >= 1.0 ? limit + Math.sqrt(limit) : limit * Math.max(0.5, gradient);
+        double next = Math.clamp(limit * (1 - smoothing) + target * smoothing, minLimit, maxLimit);
+        if (next < limit || inFlight.get() >= limit / 2) {
+            limit = next;
+        }
+    }
+    
+    // Samples a latency that is only known to be at least rttNanos, if it is slower than usual
+    private synchronized void sampleLowerBound(long rttNanos) {
+        if (baselineRtt != 0 && rttNanos > shortRtt) {
+            sample(rttNanos);
+        }
+    }
+    
+    private void release() {
+        inFlight.decrementAndGet();
+    }
+    
+    /**
+     * One acquired permit; released exactly once, whichever signal ends the operation first.
+     */
+    private final class Permit {
+        
+        private final long start;
+        private final AtomicBoolean released = new AtomicBoolean();
+        
+        private Permit(long start) {
+            this.start = start;
+        }
+        
+        void release(boolean measure) {
+            if (released.compareAndSet(false, true)) {
+                if (measure) {
+                    sample(System.nanoTime() - start);
+                }
+                AdaptiveConcurrencyLimiter.this.release();
+            }
+        }
+        
+        void releaseCancelled() {
+            if (released.compareAndSet(false, true)) {
+                sampleLowerBound(System.nanoTime() - start);
+                AdaptiveConcurrencyLimiter.this.release();
+            }
+        }
+    }
+}
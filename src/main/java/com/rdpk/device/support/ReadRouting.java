@@ -0,0 +1,144 @@
+package com.rdpk.device.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Decides whether a read may be served by the read replica.
+ *
+ * <p>Reads wrapped by {@link #read(Function)} carry {@link Target#REPLICA} in their Reactor
+ * context, which {@link RoutingConnectionFactory} uses to pick the connection pool.
+ * Everything else, including all writes, stays on the primary. Without a replica every
+ * read targets the primary.
+ *
+ * <p>Read-your-writes: a client that wrote within the configured window is pinned to the
+ * primary, so it never reads a replica that has not replayed its write yet. Clients are
+ * identified by {@link #CLIENT_KEY} in the Reactor context; reads without a client are
+ * never pinned.
+ *
+ * <p>Reads that must see the same database, such as a list page and the change sequence
+ * behind its ETag, run within {@link #sameTarget(Mono)}.
+ */
+public class ReadRouting {
+    
+    /** Reactor context key holding the client identifier used for read-your-writes. */
+    public static final String CLIENT_KEY = ReadRouting.class.getName() + ".client";
+    
+    /** Reactor context key holding the {@link Target} of the current operation. */
+    public static final String TARGET_KEY = ReadRouting.class.getName() + ".target";
+    
+    // Holds the target shared by all reads within sameTarget(Mono)
+    private static final String SHARED_TARGET_KEY = ReadRouting.class.getName() + ".shared-target";
+    
+    public enum Target {
+        PRIMARY,
+        REPLICA
+    }
+    
+    private final boolean replicaEnabled;
+    private final Cache<String, Boolean> recentWriters;
+    
+    public ReadRouting(boolean replicaEnabled, Duration readYourWritesWindow) {
+        this.replicaEnabled = replicaEnabled;
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(readYourWritesWindow)
+                .maximumSize(100_000)
+                .build();
+    }
+    
+    /**
+     * Pins a client to the primary for the read-your-writes window.
+     *
+     * @param clientId Client that just wrote
+     */
+    public void recordWrite(String clientId) {
+        recentWriters.put(clientId, Boolean.TRUE);
+    }
+    
+    /**
+     * Runs a read on the replica unless the calling client is pinned to the primary.
+     *
+     * <p>The query receives the chosen target, so callers that share loads between
+     * subscribers (see {@link SingleFlight}) can keep primary and replica loads apart.
+     *
+     * @param query Builds the read for a target
+     * @return Result of the read
+     */
+    public <T> Mono<T> read(Function<Target, Mono<T>> query) {
+        return Mono.deferContextual(context -> {
+            Target target = targetFor(context);
+            return query.apply(target).contextWrite(ctx -> ctx.put(TARGET_KEY, target));
+        });
+    }
+    
+    /**
+     * Same as {@link #read(Function)} for reads returning several rows.
+     */
+    public <T> Flux<T> readMany(Function<Target, Flux<T>> query) {
+        return Flux.deferContextual(context -> {
+            Target target = targetFor(context);
+            return query.apply(target).contextWrite(ctx -> ctx.put(TARGET_KEY, target));
+        });
+    }
+    
+    /**
+     * Runs a read that does not depend on its target on the replica when allowed.
+     */
+    public <T> Mono<T> read(Mono<T> query) {
+        return read(target -> query);
+    }
+    
+    /**
+     * Runs a multi-row read that does not depend on its target on the replica when allowed.
+     */
+    public <T> Flux<T> read(Flux<T> query) {
+        return readMany(target -> query);
+    }
+    
+    /**
+     * Runs every read within {@code reads} on one target, chosen once on subscription.
+     *
+     * <p>If one of them falls back from the replica to the primary (see
+     * {@link RoutingConnectionFactory}), the reads after it follow to the primary.
+     *
+     * @param reads Reads that must see the same database
+     * @return Result of the reads
+     */
+    public <T> Mono<T> sameTarget(Mono<T> reads) {
+        return Mono.deferContextual(context -> {
+            AtomicReference<Target> shared = new AtomicReference<>(targetFor(context));
+            return reads.contextWrite(ctx -> ctx.put(SHARED_TARGET_KEY, shared));
+        });
+    }
+    
+    /**
+     * Moves the reads sharing a target with the current one to the primary; called when a
+     * replica read was served by the primary instead. Does nothing outside {@link #sameTarget(Mono)}.
+     */
+    public static void fellBackToPrimary(ContextView context) {
+        context.<AtomicReference<Target>>getOrEmpty(SHARED_TARGET_KEY)
+                .ifPresent(shared -> shared.set(Target.PRIMARY));
+    }
+    
+    private Target targetFor(ContextView context) {
+        Optional<AtomicReference<Target>> shared = context.getOrEmpty(SHARED_TARGET_KEY);
+        if (shared.isPresent()) {
+            return shared.get().get();
+        }
+        if (!replicaEnabled) {
+            return Target.PRIMARY;
+        }
+        return context.<String>getOrEmpty(CLIENT_KEY)
+                .filter(clientId -> recentWriters.getIfPresent(clientId) != null)
+                .map(clientId -> Target.PRIMARY)
+                .orElse(Target.REPLICA);
+    }
+}
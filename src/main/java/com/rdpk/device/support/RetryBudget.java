@@ -0,0 +1,207 @@
+package com.rdpk.device.support;
+
+import io.github.resilience4j.core.IntervalBiFunction;
+import io.github.resilience4j.reactor.retry.RetryOperator;
+import io.github.resilience4j.retry.Retry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps retries across all resilience profiles at a share of recent successful calls.
+ *
+ * <p>Within a sliding window, retries are allowed while their number stays below
+ * {@code minRetriesPerSecond * window + ratio * successes}. When the database browns out,
+ * successes dry up and retries stop after the small fixed reserve instead of multiplying
+ * the load on every in-flight request.
+ *
+ * <p>{@link #backoff(Duration, Duration)} plugs the budget into a Resilience4j retry: it
+ * waits with exponential backoff and full jitter, and gives up with the original error
+ * once the budget is spent. {@link #retry(Retry, Mono)} runs a call under such a retry and
+ * credits the budget only for calls whose first attempt returned a result, so calls that
+ * needed retries never pay for more retries.
+ *
+ * <p>Retries are counted as {@code retry.budget.retries{outcome=allowed|exhausted}} and the
+ * retries left in the window are published as {@code retry.budget.available}.
+ */
+public class RetryBudget {
+    
+    // Tells the Resilience4j retry operator to stop retrying and propagate the error
+    private static final long NO_RETRY = -1L;
+    
+    private final double ratio;
+    private final int minRetriesPerSecond;
+    private final Clock clock;
+    private final long[] bucketSeconds;
+    private final long[] successes;
+    private final long[] retries;
+    private final Counter allowedRetries;
+    private final Counter exhaustedRetries;
+    
+    /**
+     * @param ratio Retries allowed per successful call in the window, e.g. 0.1 for 10%
+     * @param minRetriesPerSecond Retries allowed regardless of successes, so idle services can still retry
+     * @param window How far back successes and retries are counted; whole seconds, at least one
+     * @param clock Time source for the window
+     * @param meterRegistry Registry for budget metrics
+     */
+    public RetryBudget(double ratio, int minRetriesPerSecond, Duration window, Clock clock, MeterRegistry meterRegistry) {
+        int windowSeconds = (int) Math.max(1, window.toSeconds());
+        this.ratio = ratio;
+        this.minRetriesPerSecond = minRetriesPerSecond;
+        this.clock = clock;
+        this.bucketSeconds = new long[windowSeconds];
+        this.successes = new long[windowSeconds];
+        this.retries = new long[windowSeconds];
+        this.allowedRetries = retryCounter("allowed", meterRegistry);
+        this.exhaustedRetries = retryCounter("exhausted", meterRegistry);
+        Gauge.builder("retry.budget.available", this, RetryBudget::available)
+                .description("Retries still allowed in the current budget window")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Records a successful call, which earns {@code ratio} retries for the window.
+     */
+    public synchronized void recordSuccess() {
+        successes[bucket()]++;
+    }
+    
+    /**
+     * Runs a call under a retry, recording a success only when the first attempt returns a
+     * result. Calls that succeed after retries or complete empty earn nothing, so a burst of
+     * failing calls cannot refill the budget it retries from.
+     *
+     * @param retry Retry to run the call under
+     * @param call Call to run; subscribed again for every attempt
+     * @return Result of the call
+     */
+    public <T> Mono<T> retry(Retry retry, Mono<T> call) {
+        return Mono.defer(() -> {
+            AtomicInteger attempts = new AtomicInteger();
+            return call.doOnSubscribe(subscription -> attempts.incrementAndGet())
+                    .transformDeferred(RetryOperator.of(retry))
+                    .doOnNext(result -> recordFirstAttemptSuccess(attempts));
+        });
+    }
+    
+    /**
+     * Same as {@link #retry(Retry, Mono)} for calls returning several results; a success is
+     * recorded once the first attempt completes with at least one result.
+     */
+    public <T> Flux<T> retry(Retry retry, Flux<T> call) {
+        return Flux.defer(() -> {
+            AtomicInteger attempts = new AtomicInteger();
+            AtomicBoolean returnedResults = new AtomicBoolean();
+            return call.doOnSubscribe(subscription -> attempts.incrementAndGet())
+                    .transformDeferred(RetryOperator.of(retry))
+                    .doOnNext(result -> returnedResults.set(true))
+                    .doOnComplete(() -> {
+                        if (returnedResults.get()) {
+                            recordFirstAttemptSuccess(attempts);
+                        }
+                    });
+        });
+    }
+    
+    /**
+     * Takes one retry from the budget.
+     *
+     * @return Whether the retry may run
+     */
+    public boolean tryAcquire() {
+        boolean acquired;
+        synchronized (this) {
+            int bucket = bucket();
+            acquired = allowance() - sum(retries) >= 1;
+            if (acquired) {
+                retries[bucket]++;
+            }
+        }
+        (acquired ? allowedRetries : exhaustedRetries).increment();
+        return acquired;
+    }
+    
+    /**
+     * Retries still allowed in the current window.
+     */
+    public synchronized double available() {
+        bucket();
+        return Math.max(0, allowance() - sum(retries));
+    }
+    
+    /**
+     * Builds a Resilience4j retry interval that waits a random time between zero and
+     * {@code min(maxWait, baseWait * 2^(attempt - 1))} ("full jitter"), so retries from
+     * requests that failed together spread out instead of arriving in lockstep. Returns
+     * the retry operator's stop signal when the budget is spent.
+     *
+     * @param baseWait Upper bound of the first wait
+     * @param maxWait Upper bound of any wait
+     */
+    public IntervalBiFunction<Object> backoff(Duration baseWait, Duration maxWait) {
+        long base = baseWait.toMillis();
+        long max = maxWait.toMillis();
+        return (attempt, outcome) -> {
+            if (!tryAcquire()) {
+                return NO_RETRY;
+            }
+            // Shift limited to the free high bits of base, so late attempts cannot overflow
+            int shift = Math.min(attempt - 1, Long.numberOfLeadingZeros(base) - 1);
+            long ceiling = Math.min(max, base << shift);
+            return ThreadLocalRandom.current().nextLong(ceiling + 1);
+        };
+    }
+    
+    private void recordFirstAttemptSuccess(AtomicInteger attempts) {
+        if (attempts.get() == 1) {
+            recordSuccess();
+        }
+    }
+    
+    private double allowance() {
+        return (double) minRetriesPerSecond * bucketSeconds.length + ratio * sum(successes);
+    }
+    
+    // Index of the current second's bucket, clearing buckets that fell out of the window
+    private int bucket() {
+        long second = clock.millis() / 1000;
+        int index = (int) Math.floorMod(second, (long) bucketSeconds.length);
+        if (bucketSeconds[index] != second) {
+            bucketSeconds[index] = second;
+            successes[index] = 0;
+            retries[index] = 0;
+        }
+        long oldest = second - bucketSeconds.length;
+        for (int i = 0; i < bucketSeconds.length; i++) {
+            if (bucketSeconds[i] <= oldest) {
+                successes[i] = 0;
+                retries[i] = 0;
+            }
+        }
+        return index;
+    }
+    
+    private static long sum(long[] counts) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+    
+    private static Counter retryCounter(String outcome, MeterRegistry meterRegistry) {
+        return Counter.builder("retry.budget.retries")
+                .description("Retries requested from the retry budget by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,193 @@
+package com.rdpk.device.support;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import org.springframework.r2dbc.connection.lookup.AbstractRoutingConnectionFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routes each connection request to a named pool by database and {@link Workload}.
+ *
+ * <p>The database is the read replica for reads marked by {@link ReadRouting} when a replica
+ * pool exists for their workload, and the primary otherwise. The primary OLTP pool is the
+ * default for everything unmarked.
+ *
+ * <p>Replica connection attempts are guarded by a circuit breaker: while it is open (or has
+ * no half-open permits left), replica reads fall back to the primary, together with the reads
+ * that share their target (see {@link ReadRouting#sameTarget}). Only connection
+ * acquisition is recorded, so a failing replica trips the breaker while query errors are
+ * left to the caller's own resilience.
+ *
+ * <p>Connections handed out per database are counted as {@code read.routing.connections{target}},
+ * and the time to acquire one is timed per pool as {@code r2dbc.pool.acquire{name,outcome}}, where
+ * an {@code error} outcome is usually an acquire timeout on a saturated pool.
+ */
+public class RoutingConnectionFactory extends AbstractRoutingConnectionFactory {
+    
+    /**
+     * Key of a pool: the database it connects to and the workload it serves.
+     */
+    public record Route(ReadRouting.Target target, Workload workload) {
+        
+        /**
+         * Pool name used in metrics: the workload on the primary, prefixed with
+         * {@code replica-} on the replica.
+         */
+        public String poolName() {
+            String workloadName = workload.name().toLowerCase();
+            return target == ReadRouting.Target.PRIMARY ? workloadName : "replica-" + workloadName;
+        }
+    }
+    
+    private final Map<Route, ConnectionFactory> pools;
+    private final Map<Route, ConnectionFactory> routes;
+    private final CircuitBreaker replicaCircuitBreaker;
+    private final Counter primaryConnections;
+    private final Counter replicaConnections;
+    
+    /**
+     * @param pools Pools by route; must contain the primary OLTP pool
+     * @param replicaCircuitBreaker Guards connection attempts on replica pools
+     * @param meterRegistry Registry for routing and acquire metrics
+     */
+    public RoutingConnectionFactory(
+            Map<Route, ? extends ConnectionFactory> pools,
+            CircuitBreaker replicaCircuitBreaker,
+            MeterRegistry meterRegistry) {
+        if (!pools.containsKey(new Route(ReadRouting.Target.PRIMARY, Workload.OLTP))) {
+            throw new IllegalArgumentException("A primary OLTP pool is required");
+        }
+        this.pools = Map.copyOf(pools);
+        this.replicaCircuitBreaker = replicaCircuitBreaker;
+        this.primaryConnections = connectionCounter(ReadRouting.Target.PRIMARY, meterRegistry);
+        this.replicaConnections = connectionCounter(ReadRouting.Target.REPLICA, meterRegistry);
+        Map<Route, ConnectionFactory> routes = new HashMap<>();
+        pools.forEach((route, pool) -> {
+            ConnectionFactory timed = new TimedConnectionFactory(pool,
+                    acquireTimer(route, "success", meterRegistry), acquireTimer(route, "error", meterRegistry));
+            routes.put(route, route.target() == ReadRouting.Target.REPLICA
+                    ? new CircuitBreakingConnectionFactory(timed, replicaCircuitBreaker)
+                    : timed);
+        });
+        this.routes = Map.copyOf(routes);
+        setTargetConnectionFactories(this.routes);
+        setDefaultTargetConnectionFactory(this.routes.get(new Route(ReadRouting.Target.PRIMARY, Workload.OLTP)));
+        afterPropertiesSet();
+    }
+    
+    @Override
+    protected Mono<Object> determineCurrentLookupKey() {
+        return Mono.deferContextual(context -> {
+            Workload workload = context.getOrDefault(Workload.CONTEXT_KEY, Workload.OLTP);
+            Route replicaRoute = new Route(ReadRouting.Target.REPLICA, workload);
+            boolean replicaRequested = context.getOrDefault(ReadRouting.TARGET_KEY, ReadRouting.Target.PRIMARY)
+                    == ReadRouting.Target.REPLICA
+                    && routes.containsKey(replicaRoute);
+            boolean replica = replicaRequested && replicaCircuitBreaker.tryAcquirePermission();
+            if (replicaRequested && !replica) {
+                ReadRouting.fellBackToPrimary(context);
+            }
+            (replica ? replicaConnections : primaryConnections).increment();
+            // Workloads without a pool of their own fall back to the default (primary OLTP) pool
+            return Mono.just(replica ? replicaRoute : new Route(ReadRouting.Target.PRIMARY, workload));
+        });
+    }
+    
+    /**
+     * Connection requests currently waiting for a free connection in the pools of the given
+     * workloads, on the primary and the replica. Pools without metrics count as zero.
+     */
+    public int pendingAcquires(Set<Workload> workloads) {
+        return pools.entrySet().stream()
+                .filter(entry -> workloads.contains(entry.getKey().workload()))
+                .map(Map.Entry::getValue)
+                .filter(ConnectionPool.class::isInstance)
+                .map(ConnectionPool.class::cast)
+                .mapToInt(pool -> pool.getMetrics().map(PoolMetrics::pendingAcquireSize).orElse(0))
+                .sum();
+    }
+    
+    /**
+     * Closes every pool; used as the bean's destroy method.
+     */
+    public void dispose() {
+        pools.values().stream()
+                .filter(Disposable.class::isInstance)
+                .map(Disposable.class::cast)
+                .forEach(Disposable::dispose);
+    }
+    
+    private static Counter connectionCounter(ReadRouting.Target target, MeterRegistry meterRegistry) {
+        return Counter.builder("read.routing.connections")
+                .description("Connections acquired per routing target")
+                .tag("target", target.name().toLowerCase())
+                .register(meterRegistry);
+    }
+    
+    private static Timer acquireTimer(Route route, String outcome, MeterRegistry meterRegistry) {
+        return Timer.builder("r2dbc.pool.acquire")
+                .description("Time to acquire a connection from the pool, including waiting for a free one")
+                .tag("name", route.poolName())
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Times each connection attempt until it yields a connection or fails.
+     */
+    private record TimedConnectionFactory(ConnectionFactory delegate, Timer success, Timer error)
+            implements ConnectionFactory {
+        
+        @Override
+        public Mono<Connection> create() {
+            return Mono.defer(() -> {
+                Timer.Sample sample = Timer.start();
+                return Mono.<Connection>from(delegate.create())
+                        .doOnSuccess(connection -> sample.stop(success))
+                        .doOnError(failure -> sample.stop(error));
+            });
+        }
+        
+        @Override
+        public ConnectionFactoryMetadata getMetadata() {
+            return delegate.getMetadata();
+        }
+    }
+    
+    /**
+     * Records the outcome of each connection attempt with a circuit breaker whose permission
+     * was already acquired when the route was chosen.
+     */
+    private record CircuitBreakingConnectionFactory(ConnectionFactory delegate, CircuitBreaker circuitBreaker)
+            implements ConnectionFactory {
+        
+        @Override
+        public Mono<Connection> create() {
+            return Mono.defer(() -> {
+                long start = System.nanoTime();
+                return Mono.<Connection>from(delegate.create())
+                        .doOnSuccess(connection -> circuitBreaker.onSuccess(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                        .doOnError(error -> circuitBreaker.onError(System.nanoTime() - start, TimeUnit.NANOSECONDS, error))
+                        .doOnCancel(circuitBreaker::releasePermission);
+            });
+        }
+        
+        @Override
+        public ConnectionFactoryMetadata getMetadata() {
+            return delegate.getMetadata();
+        }
+    }
+}
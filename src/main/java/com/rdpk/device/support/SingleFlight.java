@@ -0,0 +1,71 @@
+package com.rdpk.device.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Shares one in-flight load between concurrent callers asking for the same key.
+ * 
+ * <p>The first caller for a key starts the load; callers arriving while it is still running
+ * subscribe to the same result (or error) instead of starting their own. Once the load
+ * completes the key is released, so later callers load fresh data. Nothing is cached
+ * beyond the lifetime of a single load.
+ * 
+ * <p>Deduplicated calls are counted in {@code single_flight_deduplicated_total}, tagged with {@code name}.
+ * 
+ * @param <K> Key type; must implement equals and hashCode
+ * @param <V> Value type
+ */
+public class SingleFlight<K, V> {
+    
+    private final ConcurrentMap<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter deduplicated;
+    
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.deduplicated = Counter.builder("single.flight.deduplicated")
+                .description("Calls served by joining an identical in-flight load")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Runs the load for a key, or joins the one already in flight.
+     * 
+     * @param key Identifies identical loads
+     * @param loader Starts the load; only invoked by the first caller for the key
+     * @return Result of the shared load
+     */
+    public Mono<V> execute(K key, Supplier<Mono<V>> loader) {
+        return Mono.defer(() -> {
+            AtomicBoolean started = new AtomicBoolean();
+            Mono<V> flight = inFlight.computeIfAbsent(key, k -> {
+                started.set(true);
+                return newFlight(k, loader);
+            });
+            if (!started.get()) {
+                deduplicated.increment();
+            }
+            return flight;
+        });
+    }
+    
+    private Mono<V> newFlight(K key, Supplier<Mono<V>> loader) {
+        AtomicReference<Mono<V>> self = new AtomicReference<>();
+        Runnable release = () -> inFlight.remove(key, self.get());
+        // Released before the result reaches subscribers, so a caller that has seen it
+        // starts a new load instead of re-subscribing to the completed one
+        Mono<V> flight = Mono.defer(loader)
+                .doOnEach(signal -> release.run())
+                .doOnCancel(release)
+                .share();
+        self.set(flight);
+        return flight;
+    }
+}
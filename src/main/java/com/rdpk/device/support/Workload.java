@@ -0,0 +1,40 @@
+package com.rdpk.device.support;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Workload class of a database operation, selecting the connection pool it runs on.
+ * 
+ * <p>Each class has its own pool (see {@link RoutingConnectionFactory}), so a burst of slow
+ * list queries or a long export cannot take the connections single-row lookups and writes
+ * need. The class travels in the Reactor context; unmarked operations are {@link #OLTP}.
+ */
+public enum Workload {
+    
+    /** Single-device lookups and writes. */
+    OLTP,
+    
+    /** List pages, counts and other multi-row reads. */
+    QUERY,
+    
+    /** Exports, imports, batch writes and maintenance over many rows. */
+    BULK;
+    
+    /** Reactor context key holding the workload class of the current operation. */
+    public static final String CONTEXT_KEY = Workload.class.getName();
+    
+    /**
+     * Runs an operation on this workload's pool.
+     */
+    public <T> Mono<T> run(Mono<T> operation) {
+        return operation.contextWrite(ctx -> ctx.put(CONTEXT_KEY, this));
+    }
+    
+    /**
+     * Runs a multi-row operation on this workload's pool.
+     */
+    public <T> Flux<T> run(Flux<T> operation) {
+        return operation.contextWrite(ctx -> ctx.put(CONTEXT_KEY, this));
+    }
+}
@@ -0,0 +1,182 @@
+package com.rdpk.device.support;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent single-item writes into batches.
+ * 
+ * <p>Items submitted within a short window (at most {@code maxBatchSize} items or
+ * {@code maxDelay}, whichever comes first) are written together by one call to the flush
+ * function, and every caller is completed with its own result. This trades a bounded
+ * queueing delay for far fewer statements and pooled connections under concurrency.
+ * 
+ * <p>The flush function must return exactly one result per item, in item order, and must
+ * write all items or none. If a batch flush fails, its items are flushed again one at a
+ * time, so one bad item only fails its own caller instead of the whole batch.
+ * 
+ * <p>Batches wait in the queue while all flush slots are busy, instead of overflowing. An
+ * item whose caller cancelled (e.g. a time limiter gave up) before its batch was flushed is
+ * dropped, so a caller that retries does not write it twice; once its flush has started it
+ * is written regardless. Items that cannot be queued fail immediately instead of hanging.
+ * 
+ * <p>Metrics, tagged with {@code name}:
+ * <ul>
+ *   <li>{@code write_coalescer_batch_size}: items per flush</li>
+ *   <li>{@code write_coalescer_queue_delay_seconds}: time from submit until the batch is flushed</li>
+ * </ul>
+ * 
+ * @param <T> Item type
+ * @param <R> Result type
+ */
+public class WriteCoalescer<T, R> implements AutoCloseable {
+    
+    // Flushes in flight at once; batches beyond this wait for a flush to finish
+    private static final int MAX_CONCURRENT_FLUSHES = 4;
+    
+    private final int maxBatchSize;
+    private final Duration maxDelay;
+    private final Function<List<T>, Flux<R>> flush;
+    private final DistributionSummary batchSize;
+    private final Timer queueDelay;
+    private volatile Sinks.Many<Pending<T, R>> queue;
+    private volatile Disposable subscription;
+    private volatile boolean closed;
+    
+    public WriteCoalescer(
+            String name,
+            int maxBatchSize,
+            Duration maxDelay,
+            Function<List<T>, Flux<R>> flush,
+            MeterRegistry meterRegistry) {
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelay = maxDelay;
+        this.flush = flush;
+        this.batchSize = DistributionSummary.builder("write.coalescer.batch.size")
+                .description("Number of items written per coalesced flush")
+                .tag("name", name)
+                .register(meterRegistry);
+        this.queueDelay = Timer.builder("write.coalescer.queue.delay")
+                .description("Time an item waited before its batch was flushed")
+                .tag("name", name)
+                .register(meterRegistry);
+        start();
+    }
+    
+    // Fair backpressure: full or timed-out batches wait for a free flush slot instead of
+    // failing the pipeline with an overflow
+    private void start() {
+        Sinks.Many<Pending<T, R>> queue = Sinks.many().unicast().onBackpressureBuffer();
+        this.queue = queue;
+        this.subscription = queue.asFlux()
+                .bufferTimeout(maxBatchSize, maxDelay, true)
+                .flatMap(this::flushBatch, MAX_CONCURRENT_FLUSHES)
+                .doOnDiscard(Pending.class, pending -> pending.result()
+                        .tryEmitError(new IllegalStateException("Write coalescer stopped before the item was written")))
+                .subscribe(null, this::restart);
+    }
+    
+    // Items still queued in the failed pipeline were failed by the discard hook above
+    private void restart(Throwable error) {
+        if (!closed) {
+            start();
+        }
+    }
+    
+    /**
+     * Queues an item for the next batch.
+     * 
+     * @param item Item to write
+     * @return Result of writing this item, once its batch is flushed
+     */
+    public Mono<R> submit(T item) {
+        return Mono.defer(() -> {
+            Pending<T, R> pending = new Pending<>(item, Sinks.one(), new AtomicBoolean(), System.nanoTime());
+            if (!enqueue(pending)) {
+                return Mono.error(new IllegalStateException("Write coalescer is not accepting items"));
+            }
+            return pending.result().asMono().doOnCancel(() -> pending.cancelled().set(true));
+        });
+    }
+    
+    private boolean enqueue(Pending<T, R> pending) {
+        while (!closed) {
+            Sinks.Many<Pending<T, R>> current = queue;
+            Sinks.EmitResult result = current.tryEmitNext(pending);
+            if (result.isSuccess()) {
+                return true;
+            }
+            // Concurrent submits race for the sink; a terminated sink is retried once it was restarted
+            if (result != Sinks.EmitResult.FAIL_NON_SERIALIZED && current == queue) {
+                return false;
+            }
+            Thread.onSpinWait();
+        }
+        return false;
+    }
+    
+    private Mono<Void> flushBatch(List<Pending<T, R>> queued) {
+        List<Pending<T, R>> batch = queued.stream()
+                .filter(pending -> !pending.cancelled().get())
+                .toList();
+        if (batch.isEmpty()) {
+            return Mono.empty();
+        }
+        long now = System.nanoTime();
+        batchSize.record(batch.size());
+        batch.forEach(pending -> queueDelay.record(Duration.ofNanos(now - pending.enqueuedAt())));
+        
+        return write(batch)
+                .onErrorResume(e -> batch.size() > 1
+                        ? Flux.fromIterable(batch)
+                                .concatMap(pending -> write(List.of(pending))
+                                        .onErrorResume(itemError -> fail(pending, itemError)))
+                                .then()
+                        : fail(batch.get(0), e));
+    }
+    
+    /**
+     * Flushes the given items and completes their callers with the results.
+     * On failure the callers are left pending and the error is returned.
+     */
+    private Mono<Void> write(List<Pending<T, R>> batch) {
+        return Flux.defer(() -> flush.apply(batch.stream().map(Pending::item).toList()))
+                .collectList()
+                .doOnNext(results -> {
+                    for (int i = 0; i < batch.size(); i++) {
+                        Sinks.One<R> result = batch.get(i).result();
+                        if (i < results.size()) {
+                            result.tryEmitValue(results.get(i));
+                        } else {
+                            result.tryEmitError(new IllegalStateException("No result returned for batched write"));
+                        }
+                    }
+                })
+                .then();
+    }
+    
+    private Mono<Void> fail(Pending<T, R> pending, Throwable error) {
+        pending.result().tryEmitError(error);
+        return Mono.empty();
+    }
+    
+    @Override
+    public void close() {
+        closed = true;
+        queue.tryEmitComplete();
+        subscription.dispose();
+    }
+    
+    private record Pending<T, R>(T item, Sinks.One<R> result, AtomicBoolean cancelled, long enqueuedAt) {
+    }
+}
@@ -0,0 +1,13 @@
+-- Composite indexes matching the list ordering (created_at DESC, id DESC).
+-- They serve both OFFSET pages and keyset seeks of the form
+-- WHERE (created_at, id) < (?, ?) without a sort step.
+CREATE INDEX IF NOT EXISTS idx_devices_created_at_id ON devices(created_at DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_devices_brand_created_at_id ON devices(brand, created_at DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_devices_state_created_at_id ON devices(state, created_at DESC, id DESC);
+
+-- Single-column indexes are covered by the leading column of the composites above
+DROP INDEX IF EXISTS idx_devices_brand;
+
+DROP INDEX IF EXISTS idx_devices_state;
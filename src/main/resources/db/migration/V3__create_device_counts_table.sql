@@ -0,0 +1,70 @@
+-- Per (brand, state) device counts, kept exact by triggers on devices.
+-- List endpoints read totals from here instead of running COUNT(*) over devices.
+CREATE TABLE IF NOT EXISTS device_counts (
+    brand VARCHAR(50) NOT NULL,
+    state VARCHAR(20) NOT NULL,
+    device_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (brand, state)
+);
+
+CREATE OR REPLACE FUNCTION adjust_device_count(p_brand VARCHAR, p_state VARCHAR, p_delta BIGINT)
+RETURNS VOID AS $$
+BEGIN
+    INSERT INTO device_counts (brand, state, device_count)
+    VALUES (p_brand, p_state, p_delta)
+    ON CONFLICT (brand, state)
+    DO UPDATE SET device_count = device_counts.device_count + EXCLUDED.device_count;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Row-level maintenance: runs in the same transaction as the write, so counts stay exact
+CREATE OR REPLACE FUNCTION maintain_device_counts()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        PERFORM adjust_device_count(NEW.brand, NEW.state, 1);
+    ELSIF TG_OP = 'DELETE' THEN
+        PERFORM adjust_device_count(OLD.brand, OLD.state, -1);
+    ELSIF OLD.brand IS DISTINCT FROM NEW.brand OR OLD.state IS DISTINCT FROM NEW.state THEN
+        PERFORM adjust_device_count(OLD.brand, OLD.state, -1);
+        PERFORM adjust_device_count(NEW.brand, NEW.state, 1);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_devices_maintain_counts
+    AFTER INSERT OR UPDATE OF brand, state OR DELETE ON devices
+    FOR EACH ROW EXECUTE FUNCTION maintain_device_counts();
+
+-- TRUNCATE does not fire row-level triggers
+CREATE OR REPLACE FUNCTION reset_device_counts()
+RETURNS TRIGGER AS $$
+BEGIN
+    DELETE FROM device_counts;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_devices_reset_counts
+    AFTER TRUNCATE ON devices
+    FOR EACH STATEMENT EXECUTE FUNCTION reset_device_counts();
+
+-- Reconciliation: recomputes all counts from devices, blocking writers until it commits.
+-- Returns the total number of devices.
+CREATE OR REPLACE FUNCTION rebuild_device_counts()
+RETURNS BIGINT AS $$
+DECLARE
+    total BIGINT;
+BEGIN
+    LOCK TABLE devices IN SHARE MODE;
+    DELETE FROM device_counts;
+    INSERT INTO device_counts (brand, state, device_count)
+    SELECT brand, state, COUNT(*) FROM devices GROUP BY brand, state;
+    SELECT COALESCE(SUM(device_count), 0) INTO total FROM device_counts;
+    RETURN total;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Seed counts for devices created before this migration
+SELECT rebuild_device_counts();
@@ -0,0 +1,3 @@
+-- Serves device claims (WHERE brand = ? AND state = 'AVAILABLE' ... FOR UPDATE SKIP LOCKED)
+-- with an index range scan, so claimers skip straight past rows locked by others.
+CREATE INDEX IF NOT EXISTS idx_devices_brand_state ON devices(brand, state);
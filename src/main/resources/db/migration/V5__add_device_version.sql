@@ -0,0 +1,2 @@
+-- Optimistic concurrency: incremented on every update, exposed to clients as the device ETag
+ALTER TABLE devices ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
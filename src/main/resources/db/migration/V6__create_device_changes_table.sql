@@ -0,0 +1,23 @@
+-- Table-level change sequence for devices, bumped once per writing statement by a trigger.
+-- List endpoints derive their ETag from it, so an unchanged table answers 304 without
+-- running any page or count query. Unlike a SEQUENCE, the bump is transactional: readers
+-- only see it once the write that caused it commits.
+CREATE TABLE IF NOT EXISTS device_changes (
+    id BOOLEAN PRIMARY KEY DEFAULT TRUE CHECK (id),
+    seq BIGINT NOT NULL
+);
+
+INSERT INTO device_changes (id, seq) VALUES (TRUE, 0) ON CONFLICT (id) DO NOTHING;
+
+CREATE OR REPLACE FUNCTION bump_device_changes()
+RETURNS TRIGGER AS $$
+BEGIN
+    UPDATE device_changes SET seq = seq + 1;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Statement-level: a batch insert, COPY or bulk transition bumps the sequence once
+CREATE TRIGGER trg_devices_bump_changes
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON devices
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_device_changes();
@@ -0,0 +1,69 @@
+-- Replaces the row-level count trigger from V3 with statement-level triggers.
+-- A row-level trigger adjusted the old (brand, state) counter before the new one, so a claim
+-- (AVAILABLE -> IN_USE) and a release (IN_USE -> AVAILABLE) of the same brand locked the two
+-- rows in opposite order and could deadlock. It also ran one upsert per row on a few hot rows
+-- for every COPY import and batch insert.
+-- Now each statement aggregates its changes per (brand, state) and applies them in
+-- (brand, state) order, so all writers lock counter rows in the same order, once per statement.
+DROP TRIGGER IF EXISTS trg_devices_maintain_counts ON devices;
+DROP FUNCTION IF EXISTS maintain_device_counts();
+
+CREATE OR REPLACE FUNCTION maintain_device_counts()
+RETURNS TRIGGER AS $$
+DECLARE
+    delta RECORD;
+BEGIN
+    -- Transition tables only exist for their own event, so each event has its own query
+    IF TG_OP = 'INSERT' THEN
+        FOR delta IN
+            SELECT brand, state, COUNT(*) AS change
+            FROM new_devices
+            GROUP BY brand, state
+            ORDER BY brand, state
+        LOOP
+            PERFORM adjust_device_count(delta.brand, delta.state, delta.change);
+        END LOOP;
+    ELSIF TG_OP = 'DELETE' THEN
+        FOR delta IN
+            SELECT brand, state, -COUNT(*) AS change
+            FROM old_devices
+            GROUP BY brand, state
+            ORDER BY brand, state
+        LOOP
+            PERFORM adjust_device_count(delta.brand, delta.state, delta.change);
+        END LOOP;
+    ELSE
+        FOR delta IN
+            SELECT brand, state, SUM(change) AS change
+            FROM (
+                SELECT brand, state, -1 AS change FROM old_devices
+                UNION ALL
+                SELECT brand, state, 1 AS change FROM new_devices
+            ) moved
+            GROUP BY brand, state
+            HAVING SUM(change) <> 0
+            ORDER BY brand, state
+        LOOP
+            PERFORM adjust_device_count(delta.brand, delta.state, delta.change);
+        END LOOP;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Triggers with transition tables take a single event and no column list,
+-- so updates that leave brand and state alone produce no delta instead
+CREATE TRIGGER trg_devices_count_inserts
+    AFTER INSERT ON devices
+    REFERENCING NEW TABLE AS new_devices
+    FOR EACH STATEMENT EXECUTE FUNCTION maintain_device_counts();
+
+CREATE TRIGGER trg_devices_count_updates
+    AFTER UPDATE ON devices
+    REFERENCING OLD TABLE AS old_devices NEW TABLE AS new_devices
+    FOR EACH STATEMENT EXECUTE FUNCTION maintain_device_counts();
+
+CREATE TRIGGER trg_devices_count_deletes
+    AFTER DELETE ON devices
+    REFERENCING OLD TABLE AS old_devices
+    FOR EACH STATEMENT EXECUTE FUNCTION maintain_device_counts();
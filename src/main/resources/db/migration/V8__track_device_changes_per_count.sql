@@ -0,0 +1,104 @@
+-- Replaces the single-row change sequence from V6 with a change counter on each
+-- (brand, state) row of device_counts. Every writing statement used to UPDATE the one
+-- device_changes row, so all writes to devices queued behind each other until commit and
+-- could deadlock against the counter rows they had already locked.
+-- The count triggers already lock the (brand, state) rows a statement touches, in a fixed
+-- order, so bumping a change counter there adds no new lock. The list ETag is the sum of
+-- all change counters: it is still transactional and only ever grows, but writes to
+-- different (brand, state) pairs no longer contend.
+ALTER TABLE device_counts ADD COLUMN IF NOT EXISTS changes BIGINT NOT NULL DEFAULT 0;
+
+-- Carry the old sequence over, so the sum never repeats an ETag already handed out.
+-- Without any count row yet, a placeholder row without devices carries it instead; no
+-- device has an empty brand or state, so no filter ever matches it.
+UPDATE device_counts
+SET changes = (SELECT seq FROM device_changes)
+WHERE (brand, state) = (SELECT brand, state FROM device_counts ORDER BY brand, state LIMIT 1);
+
+INSERT INTO device_counts (brand, state, device_count, changes)
+SELECT '', '', 0, seq FROM device_changes
+WHERE NOT EXISTS (SELECT 1 FROM device_counts);
+
+DROP TRIGGER IF EXISTS trg_devices_bump_changes ON devices;
+DROP FUNCTION IF EXISTS bump_device_changes();
+DROP TABLE IF EXISTS device_changes;
+
+CREATE OR REPLACE FUNCTION adjust_device_count(p_brand VARCHAR, p_state VARCHAR, p_delta BIGINT)
+RETURNS VOID AS $$
+BEGIN
+    INSERT INTO device_counts (brand, state, device_count, changes)
+    VALUES (p_brand, p_state, p_delta, 1)
+    ON CONFLICT (brand, state)
+    DO UPDATE SET device_count = device_counts.device_count + EXCLUDED.device_count,
+                  changes = device_counts.changes + 1;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Same as V7, except updates also report (brand, state) pairs whose count is unchanged,
+-- so renames and other in-place updates bump the change counter too
+CREATE OR REPLACE FUNCTION maintain_device_counts()
+RETURNS TRIGGER AS $$
+DECLARE
+    delta RECORD;
+BEGIN
+    -- Transition tables only exist for their own event, so each event has its own query
+    IF TG_OP = 'INSERT' THEN
+        FOR delta IN
+            SELECT brand, state, COUNT(*) AS change
+            FROM new_devices
+            GROUP BY brand, state
+            ORDER BY brand, state
+        LOOP
+            PERFORM adjust_device_count(delta.brand, delta.state, delta.change);
+        END LOOP;
+    ELSIF TG_OP = 'DELETE' THEN
+        FOR delta IN
+            SELECT brand, state, -COUNT(*) AS change
+            FROM old_devices
+            GROUP BY brand, state
+            ORDER BY brand, state
+        LOOP
+            PERFORM adjust_device_count(delta.brand, delta.state, delta.change);
+        END LOOP;
+    ELSE
+        FOR delta IN
+            SELECT brand, state, SUM(change) AS change
+            FROM (
+                SELECT brand, state, -1 AS change FROM old_devices
+                UNION ALL
+                SELECT brand, state, 1 AS change FROM new_devices
+            ) moved
+            GROUP BY brand, state
+            ORDER BY brand, state
+        LOOP
+            PERFORM adjust_device_count(delta.brand, delta.state, delta.change);
+        END LOOP;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- TRUNCATE keeps the rows, so their change counters survive it
+CREATE OR REPLACE FUNCTION reset_device_counts()
+RETURNS TRIGGER AS $$
+BEGIN
+    UPDATE device_counts SET device_count = 0, changes = changes + 1;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Recomputes counts in place; devices do not change, so neither do the change counters
+CREATE OR REPLACE FUNCTION rebuild_device_counts()
+RETURNS BIGINT AS $$
+DECLARE
+    total BIGINT;
+BEGIN
+    LOCK TABLE devices IN SHARE MODE;
+    UPDATE device_counts SET device_count = 0;
+    INSERT INTO device_counts (brand, state, device_count)
+    SELECT brand, state, COUNT(*) FROM devices GROUP BY brand, state
+    ON CONFLICT (brand, state) DO UPDATE SET device_count = EXCLUDED.device_count;
+    SELECT COALESCE(SUM(device_count), 0) INTO total FROM device_counts;
+    RETURN total;
+END;
+$$ LANGUAGE plpgsql;
@@ -1,13 +1,18 @@
 package com.rdpk.config;
 
 import com.rdpk.device.dto.ErrorResponse;
+import com.rdpk.device.exception.DeviceOverloadedException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import reactor.test.StepVerifier;
 
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
@@ -47,5 +52,46 @@ class GlobalExceptionHandlerTest {
                 })
                 .verifyComplete();
     }
+    
+    @Test
+    @DisplayName("Should answer overload rejections with 503 and Retry-After in whole seconds")
+    void shouldHandleDeviceOverloadedException() {
+        // Given
+        DeviceOverloadedException exception =
+                new DeviceOverloadedException("Too many concurrent device operations", Duration.ofMillis(1500));
+        
+        // When
+        var result = handler.handleDeviceOverloadedException(exception);
+        
+        // Then
+        StepVerifier.create(result)
+                .assertNext(response -> {
+                    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+                    assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+                    assertThat(response.getBody()).isNotNull();
+                    assertThat(response.getBody().error()).isEqualTo("SERVICE_OVERLOADED");
+                })
+                .verifyComplete();
+    }
+    
+    @Test
+    @DisplayName("Should handle BulkheadFullException and return 503 with Retry-After")
+    void shouldHandleBulkheadFullException() {
+        // Given
+        BulkheadFullException exception = BulkheadFullException.createBulkheadFullException(Bulkhead.ofDefaults("device-lists"));
+        
+        // When
+        var result = handler.handleBulkheadFullException(exception);
+        
+        // Then
+        StepVerifier.create(result)
+                .assertNext(response -> {
+                    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+                    assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+                    assertThat(response.getBody()).isNotNull();
+                    assertThat(response.getBody().error()).isEqualTo("SERVICE_OVERLOADED");
+                    assertThat(response.getBody().message()).contains("device-lists");
+                })
+                .verifyComplete();
+    }
 }
-
@@ -0,0 +1,133 @@
+package com.rdpk.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("LoadSheddingWebFilter Tests")
+class LoadSheddingWebFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger pendingAcquires = new AtomicInteger();
+    private final AtomicInteger handled = new AtomicInteger();
+    private final WebFilterChain chain = exchange -> Mono.fromRunnable(handled::incrementAndGet);
+
+    private LoadSheddingWebFilter filter(boolean enabled) {
+        // High: 4 in flight / 8 pending; low: 2 in flight / 3 pending
+        LoadSheddingProperties properties = new LoadSheddingProperties(enabled, 4, 8, 2, 3, Duration.ofSeconds(2));
+        return new LoadSheddingWebFilter(properties, pendingAcquires::get,
+                new ObjectMapper().registerModule(new JavaTimeModule()),
+                Clock.fixed(Instant.parse("2024-01-01T12:00:00Z"), ZoneOffset.UTC), meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should classify single-device writes and lookups by id as high priority and lists and bulk work as low")
+    void shouldClassifyRequestsByEndpoint() {
+        assertThat(classify(MockServerHttpRequest.get("/api/v1/devices?page=0"))).isEqualTo(LoadSheddingWebFilter.Priority.LOW);
+        assertThat(classify(MockServerHttpRequest.get("/api/v1/devices/export"))).isEqualTo(LoadSheddingWebFilter.Priority.LOW);
+        assertThat(classify(MockServerHttpRequest.post("/api/v1/devices/import"))).isEqualTo(LoadSheddingWebFilter.Priority.LOW);
+        assertThat(classify(MockServerHttpRequest.post("/api/v1/devices/batch"))).isEqualTo(LoadSheddingWebFilter.Priority.LOW);
+        assertThat(classify(MockServerHttpRequest.post("/api/v1/devices/state-transitions"))).isEqualTo(LoadSheddingWebFilter.Priority.LOW);
+        assertThat(classify(MockServerHttpRequest.get("/api/v1/devices?ids=1,2"))).isEqualTo(LoadSheddingWebFilter.Priority.HIGH);
+        assertThat(classify(MockServerHttpRequest.get("/api/v1/devices/1"))).isEqualTo(LoadSheddingWebFilter.Priority.HIGH);
+        assertThat(classify(MockServerHttpRequest.post("/api/v1/devices"))).isEqualTo(LoadSheddingWebFilter.Priority.HIGH);
+        assertThat(classify(MockServerHttpRequest.patch("/api/v1/devices/1"))).isEqualTo(LoadSheddingWebFilter.Priority.HIGH);
+        assertThat(classify(MockServerHttpRequest.post("/api/v1/devices/claim"))).isEqualTo(LoadSheddingWebFilter.Priority.HIGH);
+    }
+
+    @Test
+    @DisplayName("Should shed lists before state changes when connection requests queue up")
+    void shouldShedLowPriorityFirstOnPendingAcquires() {
+        // Given - pending acquires between the low and high limits
+        LoadSheddingWebFilter filter = filter(true);
+        pendingAcquires.set(5);
+        MockServerWebExchange list = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/devices"));
+        MockServerWebExchange patch = MockServerWebExchange.from(MockServerHttpRequest.patch("/api/v1/devices/1"));
+
+        // When
+        StepVerifier.create(filter.filter(list, chain)).verifyComplete();
+        StepVerifier.create(filter.filter(patch, chain)).verifyComplete();
+
+        // Then
+        assertThat(list.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(list.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+        StepVerifier.create(list.getResponse().getBodyAsString())
+                .assertNext(body -> assertThat(body).contains("\"error\":\"SERVICE_OVERLOADED\""))
+                .verifyComplete();
+        assertThat(patch.getResponse().getStatusCode()).isNull();
+        assertThat(handled).hasValue(1);
+        assertThat(meterRegistry.get("load.shedding.shed").tag("priority", "low").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("load.shedding.shed").tag("priority", "high").counter().count()).isZero();
+
+        // When - the high limit is reached too
+        pendingAcquires.set(8);
+        MockServerWebExchange secondPatch = MockServerWebExchange.from(MockServerHttpRequest.patch("/api/v1/devices/1"));
+        StepVerifier.create(filter.filter(secondPatch, chain)).verifyComplete();
+
+        // Then
+        assertThat(secondPatch.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(meterRegistry.get("load.shedding.shed").tag("priority", "high").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Should shed lists once in-flight requests reach the low limit and release them when they end")
+    void shouldShedOnInFlightRequests() {
+        // Given - two requests that stay in flight
+        LoadSheddingWebFilter filter = filter(true);
+        WebFilterChain hanging = exchange -> Mono.never();
+        var first = filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/devices/1")), hanging).subscribe();
+        var second = filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/devices/2")), hanging).subscribe();
+        assertThat(meterRegistry.get("load.shedding.in.flight").gauge().value()).isEqualTo(2.0);
+
+        // When
+        MockServerWebExchange list = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/devices"));
+        StepVerifier.create(filter.filter(list, chain)).verifyComplete();
+
+        // Then
+        assertThat(list.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        first.dispose();
+        second.dispose();
+        assertThat(meterRegistry.get("load.shedding.in.flight").gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should never shed non-API paths or anything when disabled")
+    void shouldNotShedOutsideApiOrWhenDisabled() {
+        // Given
+        pendingAcquires.set(100);
+        MockServerWebExchange health = MockServerWebExchange.from(MockServerHttpRequest.get("/actuator/health"));
+        MockServerWebExchange list = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/devices"));
+
+        // When
+        StepVerifier.create(filter(true).filter(health, chain)).verifyComplete();
+        StepVerifier.create(filter(false).filter(list, chain)).verifyComplete();
+
+        // Then
+        assertThat(health.getResponse().getStatusCode()).isNull();
+        assertThat(list.getResponse().getStatusCode()).isNull();
+        assertThat(handled).hasValue(2);
+    }
+
+    private static LoadSheddingWebFilter.Priority classify(MockServerHttpRequest.BaseBuilder<?> request) {
+        MockServerHttpRequest built = request.build();
+        String path = built.getPath().pathWithinApplication().value();
+        return LoadSheddingWebFilter.classify(built, path.substring(LoadSheddingWebFilter.API_PATH.length()));
+    }
+}
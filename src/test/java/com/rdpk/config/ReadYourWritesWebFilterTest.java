@@ -0,0 +1,90 @@
+package com.rdpk.config;
+
+import com.rdpk.device.support.ReadRouting;
+import com.rdpk.device.support.RoutingConnectionFactory;
+import com.rdpk.device.support.Workload;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ReadYourWritesWebFilter Tests")
+class ReadYourWritesWebFilterTest {
+    
+    private final StubConnectionFactory primary = new StubConnectionFactory();
+    private final StubConnectionFactory replica = new StubConnectionFactory();
+    private final ReadRouting readRouting = new ReadRouting(true, Duration.ofMinutes(1));
+    private final RoutingConnectionFactory routing = new RoutingConnectionFactory(Map.of(
+            new RoutingConnectionFactory.Route(ReadRouting.Target.PRIMARY, Workload.OLTP), primary,
+            new RoutingConnectionFactory.Route(ReadRouting.Target.REPLICA, Workload.OLTP), replica
+    ), CircuitBreaker.ofDefaults("replica"), new SimpleMeterRegistry());
+    private final ReadYourWritesWebFilter filter = new ReadYourWritesWebFilter(readRouting);
+    private final WebFilterChain readChain = exchange -> readRouting.read(routing.create()).then();
+    
+    @Test
+    @DisplayName("Should route a GET sent as soon as the POST response arrives to the primary")
+    void shouldRouteReadRightAfterWriteToPrimary() {
+        // Given - the POST handler responds, and the client sends its GET right away
+        WebFilterChain writeChain = exchange -> filter.filter(
+                exchange("client-a", MockServerHttpRequest.get("/api/v1/devices")), readChain);
+        
+        // When
+        filter.filter(exchange("client-a", MockServerHttpRequest.post("/api/v1/devices")), writeChain).block();
+        
+        // Then
+        assertThat(primary.connections).hasValue(1);
+        assertThat(replica.connections).hasValue(0);
+    }
+    
+    @Test
+    @DisplayName("Should keep reads of other clients on the replica")
+    void shouldNotPinOtherClients() {
+        // Given
+        filter.filter(exchange("client-a", MockServerHttpRequest.post("/api/v1/devices")), exchange -> Mono.empty()).block();
+        
+        // When
+        filter.filter(exchange("client-b", MockServerHttpRequest.get("/api/v1/devices")), readChain).block();
+        
+        // Then
+        assertThat(replica.connections).hasValue(1);
+        assertThat(primary.connections).hasValue(0);
+    }
+    
+    private static MockServerWebExchange exchange(String clientId, MockServerHttpRequest.BaseBuilder<?> request) {
+        return MockServerWebExchange.from(request.header(ReadYourWritesWebFilter.CLIENT_ID_HEADER, clientId));
+    }
+    
+    /**
+     * Counts connection attempts; completes empty instead of opening a real connection.
+     */
+    private static class StubConnectionFactory implements ConnectionFactory {
+        
+        private final AtomicInteger connections = new AtomicInteger();
+        
+        @Override
+        public Mono<Connection> create() {
+            return Mono.defer(() -> {
+                connections.incrementAndGet();
+                return Mono.empty();
+            });
+        }
+        
+        @Override
+        public ConnectionFactoryMetadata getMetadata() {
+            return () -> "stub";
+        }
+    }
+}
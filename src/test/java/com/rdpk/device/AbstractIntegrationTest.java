@@ -1,6 +1,8 @@
 package com.rdpk.device;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.rdpk.device.config.SharedPostgresContainer;
+import com.rdpk.device.domain.Device;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.TestInstance;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,7 +19,7 @@ import org.testcontainers.containers.PostgreSQLContainer;
  * 
  * Provides:
  * - Shared PostgreSQL Testcontainer for isolated database testing
- * - Automatic database cleanup before each test
+ * - Automatic database and device cache cleanup before each test
  * - Auto-configured WebTestClient setup
  * 
  * NOTE: Tests use real PostgreSQL via Testcontainers - NO MOCKS
@@ -55,6 +57,10 @@ public abstract class AbstractIntegrationTest {
         registry.add("spring.flyway.password", postgres::getPassword);
         registry.add("spring.flyway.locations", () -> "classpath:db/migration");
         registry.add("spring.flyway.baseline-on-migrate", () -> true);
+        
+        // Short OLTP statement timeout (4s in production), so tests that outlive it wait less;
+        // lock waits in the concurrency tests stay well below it
+        registry.add("devices.pools.oltp.statement-timeout", () -> "1s");
     }
 
     @Autowired
@@ -62,6 +68,9 @@ public abstract class AbstractIntegrationTest {
     
     @Autowired  
     protected WebTestClient webTestClient; // Auto-configured by Spring Boot Test
+    
+    @Autowired
+    protected Cache<Long, Device> deviceCache;
 
     @BeforeEach
     protected void setUp() {
@@ -71,6 +80,9 @@ public abstract class AbstractIntegrationTest {
                 .fetch()
                 .rowsUpdated()
                 .block();
+        
+        // IDs restart at 1 after TRUNCATE, so cached devices from previous tests must go too
+        deviceCache.invalidateAll();
     }
 }
 
@@ -39,6 +39,28 @@ class ObservabilityIntegrationTest extends AbstractIntegrationTest {
                 .jsonPath("$.names").isNotEmpty();
     }
     
+    @Test
+    @DisplayName("GET /actuator/metrics/r2dbc.pool.* - Should export metrics per connection pool")
+    void shouldExposeConnectionPoolMetrics() {
+        // Given - a lookup acquires a connection from the OLTP pool
+        webTestClient.get()
+                .uri("/api/v1/devices/{id}", 999)
+                .exchange()
+                .expectStatus().isNotFound();
+        
+        // Then
+        webTestClient.get()
+                .uri("/actuator/metrics/r2dbc.pool.max.allocated?tag=name:bulk")
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.get()
+                .uri("/actuator/metrics/r2dbc.pool.acquire?tag=name:oltp")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.measurements[?(@.statistic == 'COUNT')].value").isNotEmpty();
+    }
+    
     // NOTE: Prometheus endpoint testing is difficult in Spring Boot test context
     // The /actuator/prometheus endpoint requires full Micrometer registry initialization
     // which may not happen properly in test contexts. Verification should be done manually:
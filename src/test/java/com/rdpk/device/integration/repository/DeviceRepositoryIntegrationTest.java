@@ -5,14 +5,19 @@ import com.rdpk.device.domain.Device;
 import com.rdpk.device.domain.DeviceState;
 import com.rdpk.device.fixture.DeviceFixture;
 import com.rdpk.device.repository.DeviceRepository;
+import com.rdpk.device.support.Workload;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -23,6 +28,9 @@ class DeviceRepositoryIntegrationTest extends AbstractIntegrationTest {
     @Autowired
     private DeviceRepository deviceRepository;
     
+    @Autowired
+    private TransactionalOperator transactionalOperator;
+    
     // databaseClient is inherited from AbstractIntegrationTest
     
     @Test
@@ -88,7 +96,7 @@ class DeviceRepositoryIntegrationTest extends AbstractIntegrationTest {
         
         // When - Use paginated method
         Pageable pageable = PageRequest.of(0, 20);
-        List<Device> devices = deviceRepository.findAllByOrderByCreatedAtDesc(pageable)
+        List<Device> devices = deviceRepository.findAllByOrderByCreatedAtDescIdDesc(pageable)
                 .collectList()
                 .block();
         
@@ -109,7 +117,7 @@ class DeviceRepositoryIntegrationTest extends AbstractIntegrationTest {
         
         // When - Use paginated method
         Pageable pageable = PageRequest.of(0, 20);
-        List<Device> devices = deviceRepository.findByBrand("Apple", pageable)
+        List<Device> devices = deviceRepository.findByBrandOrderByCreatedAtDescIdDesc("Apple", pageable)
                 .collectList()
                 .block();
         
@@ -133,7 +141,7 @@ class DeviceRepositoryIntegrationTest extends AbstractIntegrationTest {
         
         // When - Use paginated method
         Pageable pageable = PageRequest.of(0, 20);
-        List<Device> devices = deviceRepository.findByState(DeviceState.IN_USE, pageable)
+        List<Device> devices = deviceRepository.findByStateOrderByCreatedAtDescIdDesc(DeviceState.IN_USE, pageable)
                 .collectList()
                 .block();
         
@@ -143,13 +151,31 @@ class DeviceRepositoryIntegrationTest extends AbstractIntegrationTest {
                 .containsOnly(DeviceState.IN_USE);
     }
     
+    @Test
+    @DisplayName("Should seek devices after a (createdAt, id) position")
+    void shouldFindDevicesAfterPosition() {
+        // Given - Devices sharing the same createdAt are ordered by id
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 12, 0);
+        Device first = deviceRepository.save(DeviceFixture.createDeviceWithState("Device 1", "Brand", DeviceState.AVAILABLE, createdAt)).block();
+        Device second = deviceRepository.save(DeviceFixture.createDeviceWithState("Device 2", "Brand", DeviceState.AVAILABLE, createdAt)).block();
+        deviceRepository.save(DeviceFixture.createDeviceWithState("Device 3", "Brand", DeviceState.AVAILABLE, createdAt)).block();
+        
+        // When - Seek past the third device
+        List<Device> devices = deviceRepository.findAllAfter(createdAt, second.id() + 1, 10)
+                .collectList()
+                .block();
+        
+        // Then
+        assertThat(devices).extracting(Device::id).containsExactly(second.id(), first.id());
+    }
+    
     @Test
     @DisplayName("Should update existing device")
     void shouldUpdateExistingDevice() {
         // Given
         Device saved = deviceRepository.save(DeviceFixture.createAvailableDevice())
                 .block();
-        Device toUpdate = new Device(saved.id(), "Updated Name", "Updated Brand", DeviceState.IN_USE, saved.createdAt());
+        Device toUpdate = new Device(saved.id(), "Updated Name", "Updated Brand", DeviceState.IN_USE, saved.createdAt(), saved.version());
         
         // When
         Mono<Device> result = deviceRepository.save(toUpdate);
@@ -161,6 +187,7 @@ class DeviceRepositoryIntegrationTest extends AbstractIntegrationTest {
                     assertThat(device.name()).isEqualTo("Updated Name");
                     assertThat(device.brand()).isEqualTo("Updated Brand");
                     assertThat(device.state()).isEqualTo(DeviceState.IN_USE);
+                    assertThat(device.version()).isEqualTo(saved.version() + 1);
                 })
                 .verifyComplete();
     }
@@ -184,6 +211,28 @@ class DeviceRepositoryIntegrationTest extends AbstractIntegrationTest {
                 .verifyComplete();
     }
     
+    @Test
+    @DisplayName("Should delete only available devices")
+    void shouldDeleteOnlyAvailableDevices() {
+        // Given
+        Device available = deviceRepository.save(DeviceFixture.createAvailableDevice())
+                .block();
+        Device inUse = deviceRepository.save(DeviceFixture.createDeviceWithState("Device", "Brand", DeviceState.IN_USE))
+                .block();
+        
+        // When & Then
+        StepVerifier.create(deviceRepository.deleteIfAvailable(available.id(), null))
+                .assertNext(id -> assertThat(id).isEqualTo(available.id()))
+                .verifyComplete();
+        
+        StepVerifier.create(deviceRepository.deleteIfAvailable(inUse.id(), null))
+                .verifyComplete();
+        
+        StepVerifier.create(deviceRepository.existsById(inUse.id()))
+                .assertNext(exists -> assertThat(exists).isTrue())
+                .verifyComplete();
+    }
+    
     @Test
     @DisplayName("Should check if device exists by ID")
     void shouldCheckIfDeviceExists() {
@@ -200,5 +249,108 @@ class DeviceRepositoryIntegrationTest extends AbstractIntegrationTest {
                 .assertNext(exists -> assertThat(exists).isFalse())
                 .verifyComplete();
     }
+    
+    @Test
+    @DisplayName("Should not deadlock when claims and releases of one brand wait on the same counters")
+    void shouldNotDeadlockOnConcurrentClaimsAndReleases() {
+        // Given - 15 available and 15 in-use devices of the same brand
+        databaseClient.sql("INSERT INTO devices (name, brand, state, created_at) "
+                        + "SELECT 'Device ' || i, 'Apple', CASE WHEN i % 2 = 0 THEN 'AVAILABLE' ELSE 'IN_USE' END, now() "
+                        + "FROM generate_series(1, 30) AS i")
+                .fetch()
+                .rowsUpdated()
+                .block();
+        List<Long> inUse = databaseClient.sql("SELECT id FROM devices WHERE state = 'IN_USE' ORDER BY id")
+                .map(row -> row.get("id", Long.class))
+                .all()
+                .collectList()
+                .block();
+        
+        // When - in each round, claims (AVAILABLE -> IN_USE) and then releases (IN_USE -> AVAILABLE)
+        // queue up behind a transaction holding the (Apple, AVAILABLE) counter. A release that
+        // locked (Apple, IN_USE) before waiting would deadlock with any claim served first.
+        for (int round = 0; round < 5; round++) {
+            List<Long> released = inUse.subList(round * 3, round * 3 + 3);
+            Mono<Void> holdAvailableCounter = databaseClient
+                    .sql("SELECT device_count FROM device_counts WHERE brand = 'Apple' AND state = 'AVAILABLE' FOR UPDATE")
+                    .fetch()
+                    .first()
+                    .then(Mono.delay(Duration.ofMillis(300)))
+                    .then()
+                    .as(transactionalOperator::transactional);
+            Mono<Void> claims = Mono.delay(Duration.ofMillis(100))
+                    .thenMany(Flux.range(0, 3).flatMap(i -> deviceRepository.claimAvailable("Apple", 1)))
+                    .then();
+            Mono<Void> releases = Mono.delay(Duration.ofMillis(200))
+                    .thenMany(Flux.fromIterable(released)
+                            .flatMap(id -> deviceRepository.transitionStateByIds(new Long[] {id}, "AVAILABLE")))
+                    .then();
+            
+            StepVerifier.create(Mono.when(holdAvailableCounter, claims, releases))
+                    .expectComplete()
+                    .verify(Duration.ofSeconds(10));
+        }
+        
+        // Then - every statement committed and the counters match the table
+        StepVerifier.create(deviceRepository.countByState("AVAILABLE"))
+                .expectNext(15L)
+                .verifyComplete();
+        StepVerifier.create(deviceRepository.countByState("IN_USE"))
+                .expectNext(15L)
+                .verifyComplete();
+    }
+    
+    @Test
+    @DisplayName("Should bump the change sequence without serializing writes to other brands")
+    void shouldBumpChangeSequenceWithoutSerializingWrites() {
+        // Given
+        Long before = deviceRepository.findChangeSequence().block();
+        
+        // When - a Samsung insert runs while an Apple insert is still uncommitted
+        Mono<Void> openAppleWrite = deviceRepository.save(DeviceFixture.createAvailableDevice("iPhone", "Apple"))
+                .then(Mono.delay(Duration.ofSeconds(2)))
+                .then()
+                .as(transactionalOperator::transactional);
+        Mono<Long> samsungWriteMillis = Mono.delay(Duration.ofMillis(200))
+                .then(deviceRepository.save(DeviceFixture.createAvailableDevice("Galaxy", "Samsung")).elapsed())
+                .map(elapsed -> elapsed.getT1());
+        
+        // Then - it does not wait for the Apple transaction to commit
+        StepVerifier.create(Mono.zip(openAppleWrite.thenReturn(true), samsungWriteMillis))
+                .assertNext(outcomes -> assertThat(outcomes.getT2()).isLessThan(1000L))
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+        
+        // And both inserts, as well as an update that keeps brand and state, bump the sequence
+        databaseClient.sql("UPDATE devices SET name = 'iPhone 15' WHERE brand = 'Apple'")
+                .fetch()
+                .rowsUpdated()
+                .block();
+        StepVerifier.create(deviceRepository.findChangeSequence())
+                .expectNext(before + 3)
+                .verifyComplete();
+    }
+    
+    @Test
+    @DisplayName("Should let bulk statements run past the OLTP statement timeout")
+    void shouldLetBulkStatementsOutliveOltpTimeout() {
+        // Given - the same statement, longer than the 1s OLTP statement timeout of the tests, on each pool
+        Mono<String> oltp = sleepPastOltpTimeout(Workload.OLTP);
+        Mono<String> bulk = sleepPastOltpTimeout(Workload.BULK);
+        
+        // When / Then - PostgreSQL cancels it on the OLTP pool only
+        StepVerifier.create(Mono.zip(oltp, bulk))
+                .assertNext(outcomes -> {
+                    assertThat(outcomes.getT1()).contains("statement timeout");
+                    assertThat(outcomes.getT2()).isEqualTo("completed");
+                })
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+    }
+    
+    private Mono<String> sleepPastOltpTimeout(Workload workload) {
+        return workload.run(databaseClient.sql("SELECT pg_sleep(1.5)").then())
+                .thenReturn("completed")
+                .onErrorResume(error -> Mono.just(String.valueOf(error.getMessage())));
+    }
 }
-
@@ -0,0 +1,59 @@
+package com.rdpk.device.integration.service;
+
+import com.rdpk.device.AbstractIntegrationTest;
+import com.rdpk.device.domain.Device;
+import com.rdpk.device.repository.DeviceRepository;
+import com.rdpk.device.service.DeviceService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("DeviceService Create Coalescing Integration Tests")
+@TestPropertySource(properties = {
+        "devices.create-coalescing.enabled=true",
+        "devices.create-coalescing.max-delay=200ms"
+})
+class DeviceServiceCoalescingIntegrationTest extends AbstractIntegrationTest {
+    
+    @Autowired
+    private DeviceService deviceService;
+    
+    @Autowired
+    private DeviceRepository deviceRepository;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Test
+    @DisplayName("Should create the valid devices of a coalesced batch and fail only the invalid one")
+    void shouldFailOnlyTheInvalidCreateOfABatch() {
+        // Given - brand is VARCHAR(50), so the second create fails in the database
+        List<String> brands = List.of("Apple", "B".repeat(51), "Samsung");
+        
+        // When
+        List<String> results = Flux.fromIterable(brands)
+                .flatMap(brand -> deviceService.createDevice("Device", brand)
+                        .map(Device::brand)
+                        .onErrorResume(e -> Mono.just("failed")))
+                .collectList()
+                .block(Duration.ofSeconds(10));
+        
+        // Then
+        assertThat(results).containsExactlyInAnyOrder("Apple", "failed", "Samsung");
+        assertThat(meterRegistry.get("write.coalescer.batch.size").summary().max())
+                .isGreaterThanOrEqualTo(3.0);
+        StepVerifier.create(deviceRepository.count())
+                .assertNext(count -> assertThat(count).isEqualTo(2L))
+                .verifyComplete();
+    }
+}
@@ -4,17 +4,25 @@ import com.rdpk.device.AbstractIntegrationTest;
 import com.rdpk.device.domain.Device;
 import com.rdpk.device.domain.DeviceState;
 import com.rdpk.device.exception.DeviceDeletionException;
+import com.rdpk.device.exception.DeviceNotFoundException;
 import com.rdpk.device.exception.DeviceUpdateException;
 import com.rdpk.device.fixture.DeviceFixture;
 import com.rdpk.device.repository.DeviceRepository;
 import com.rdpk.device.service.DeviceService;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Flux;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 @DisplayName("DeviceService Integration Tests")
@@ -26,6 +34,9 @@ class DeviceServiceIntegrationTest extends AbstractIntegrationTest {
     @Autowired
     private DeviceRepository deviceRepository;
     
+    @Autowired
+    private BulkheadRegistry bulkheadRegistry;
+    
     // databaseClient is inherited from AbstractIntegrationTest
     
     @Test
@@ -68,6 +79,107 @@ class DeviceServiceIntegrationTest extends AbstractIntegrationTest {
                 .verify();
     }
     
+    @Test
+    @DisplayName("Should serve repeated reads from cache and refresh it on update")
+    void shouldServeReadsFromCacheAndRefreshOnUpdate() {
+        // Given
+        Device saved = deviceRepository.save(DeviceFixture.createAvailableDevice())
+                .block();
+        deviceService.getDeviceById(saved.id()).block();
+        
+        // When - row changes behind the service's back
+        databaseClient.sql("UPDATE devices SET name = 'Changed Directly' WHERE id = :id")
+                .bind("id", saved.id())
+                .fetch()
+                .rowsUpdated()
+                .block();
+        
+        // Then - cached device is returned
+        StepVerifier.create(deviceService.getDeviceById(saved.id()))
+                .assertNext(device -> assertThat(device.name()).isEqualTo(saved.name()))
+                .verifyComplete();
+        
+        // When - updated through the service
+        deviceService.updateDevice(saved.id(), "Updated Name", null, null).block();
+        
+        // Then - cache holds the updated device
+        assertThat(deviceCache.getIfPresent(saved.id()))
+                .extracting(Device::name)
+                .isEqualTo("Updated Name");
+    }
+    
+    @Test
+    @DisplayName("Should invalidate cached device on delete")
+    void shouldInvalidateCachedDeviceOnDelete() {
+        // Given
+        Device saved = deviceRepository.save(DeviceFixture.createAvailableDevice())
+                .block();
+        deviceService.getDeviceById(saved.id()).block();
+        
+        // When
+        deviceService.deleteDevice(saved.id()).block();
+        
+        // Then
+        assertThat(deviceCache.getIfPresent(saved.id())).isNull();
+        StepVerifier.create(deviceService.getDeviceById(saved.id()))
+                .expectError(DeviceNotFoundException.class)
+                .verify();
+    }
+    
+    @Test
+    @DisplayName("Should transition states of listed devices and invalidate them in cache")
+    void shouldTransitionStatesByIds() {
+        // Given
+        Device available = deviceRepository.save(DeviceFixture.createDeviceWithState("iPhone 15", "Apple", DeviceState.AVAILABLE))
+                .block();
+        Device inUse = deviceRepository.save(DeviceFixture.createDeviceWithState("Galaxy S24", "Samsung", DeviceState.IN_USE))
+                .block();
+        Device inactive = deviceRepository.save(DeviceFixture.createDeviceWithState("Pixel 8", "Google", DeviceState.INACTIVE))
+                .block();
+        deviceService.getDeviceById(available.id()).block();
+        
+        // When
+        StepVerifier.create(deviceService.transitionStates(
+                        List.of(available.id(), inUse.id(), inactive.id(), 999L), DeviceState.INACTIVE).sort())
+                .expectNext(available.id(), inUse.id())
+                .verifyComplete();
+        
+        // Then
+        assertThat(deviceCache.getIfPresent(available.id())).isNull();
+        StepVerifier.create(deviceService.getDeviceById(available.id()))
+                .assertNext(device -> assertThat(device.state()).isEqualTo(DeviceState.INACTIVE))
+                .verifyComplete();
+    }
+    
+    @Test
+    @DisplayName("Should hand out distinct devices to concurrent claimers")
+    void shouldClaimDistinctDevicesConcurrently() {
+        // Given
+        for (int i = 0; i < 10; i++) {
+            deviceRepository.save(DeviceFixture.createDeviceWithState("iPhone " + i, "Apple", DeviceState.AVAILABLE))
+                    .block();
+        }
+        deviceRepository.save(DeviceFixture.createDeviceWithState("Galaxy S24", "Samsung", DeviceState.AVAILABLE))
+                .block();
+        
+        // When - five claimers ask for 3 devices each, 15 in total, at the same time
+        List<Device> claimed = Flux.range(0, 5)
+                .flatMap(i -> deviceService.claimDevices("Apple", 3))
+                .collectList()
+                .block();
+        
+        // Then - every Apple device is claimed exactly once
+        assertThat(claimed).hasSize(10);
+        assertThat(claimed).extracting(Device::id).doesNotHaveDuplicates();
+        assertThat(claimed).allSatisfy(device -> {
+            assertThat(device.brand()).isEqualTo("Apple");
+            assertThat(device.state()).isEqualTo(DeviceState.IN_USE);
+        });
+        StepVerifier.create(deviceService.countByState(DeviceState.AVAILABLE))
+                .expectNext(1L)
+                .verifyComplete();
+    }
+    
     @Test
     @DisplayName("Should get all devices")
     void shouldGetAllDevices() {
@@ -123,6 +235,82 @@ class DeviceServiceIntegrationTest extends AbstractIntegrationTest {
         assertThat(count).isEqualTo(2L);
     }
     
+    @Test
+    @DisplayName("Should get page of devices by brand together with its total")
+    void shouldGetDevicesPageWithTotal() {
+        // Given
+        deviceRepository.save(DeviceFixture.createAvailableDevice("iPhone", "Apple")).block();
+        deviceRepository.save(DeviceFixture.createAvailableDevice("Galaxy", "Samsung")).block();
+        deviceRepository.save(DeviceFixture.createAvailableDevice("iPad", "Apple")).block();
+        deviceRepository.save(DeviceFixture.createAvailableDevice("Mac", "Apple")).block();
+        
+        // When & Then - First page
+        StepVerifier.create(deviceService.getDevicesByBrandPage("Apple", PageRequest.of(0, 2)))
+                .assertNext(page -> {
+                    assertThat(page.totalElements()).isEqualTo(3L);
+                    assertThat(page.devices()).extracting(Device::name).containsExactly("Mac", "iPad");
+                })
+                .verifyComplete();
+        
+        // When & Then - Past the last page still reports the total
+        StepVerifier.create(deviceService.getDevicesByBrandPage("Apple", PageRequest.of(5, 2)))
+                .assertNext(page -> {
+                    assertThat(page.totalElements()).isEqualTo(3L);
+                    assertThat(page.devices()).isEmpty();
+                })
+                .verifyComplete();
+    }
+    
+    @Test
+    @DisplayName("Should keep counts exact across create, update and delete")
+    void shouldKeepCountsExactAcrossWrites() {
+        // Given
+        Device iPhone = deviceService.createDevice("iPhone", "Apple").block();
+        deviceService.createDevice("iPad", "Apple").block();
+        Device galaxy = deviceService.createDevice("Galaxy", "Samsung").block();
+        
+        // When
+        deviceService.updateDevice(iPhone.id(), null, null, DeviceState.IN_USE).block();
+        deviceService.updateDevice(galaxy.id(), null, "Google", null).block();
+        deviceService.deleteDevice(galaxy.id()).block();
+        
+        // Then
+        StepVerifier.create(deviceService.countAllDevices())
+                .expectNext(2L)
+                .verifyComplete();
+        StepVerifier.create(deviceService.countByBrand("Apple"))
+                .expectNext(2L)
+                .verifyComplete();
+        StepVerifier.create(deviceService.countByBrand("Google"))
+                .expectNext(0L)
+                .verifyComplete();
+        StepVerifier.create(deviceService.countByState(DeviceState.IN_USE))
+                .expectNext(1L)
+                .verifyComplete();
+    }
+    
+    @Test
+    @DisplayName("Should rebuild counts from devices")
+    void shouldRebuildCounts() {
+        // Given - counts drifted from the devices table
+        deviceRepository.save(DeviceFixture.createAvailableDevice("iPhone", "Apple")).block();
+        deviceRepository.save(DeviceFixture.createAvailableDevice("iPad", "Apple")).block();
+        databaseClient.sql("UPDATE device_counts SET device_count = 42")
+                .fetch()
+                .rowsUpdated()
+                .block();
+        
+        // When
+        StepVerifier.create(deviceService.rebuildDeviceCounts())
+                .expectNext(2L)
+                .verifyComplete();
+        
+        // Then
+        StepVerifier.create(deviceService.countByBrand("Apple"))
+                .expectNext(2L)
+                .verifyComplete();
+    }
+    
     @Test
     @DisplayName("Should update device successfully when device is available")
     void shouldUpdateDeviceWhenAvailable() {
@@ -166,6 +354,27 @@ class DeviceServiceIntegrationTest extends AbstractIntegrationTest {
                 .verify();
     }
     
+    @Test
+    @DisplayName("Should leave device untouched when name update of device in use is rejected")
+    void shouldNotApplyStateWhenNameUpdateOfDeviceInUseIsRejected() {
+        // Given
+        Device inUse = deviceRepository.save(DeviceFixture.createDeviceWithState("Device", "Brand", DeviceState.IN_USE))
+                .block();
+        
+        // When
+        StepVerifier.create(deviceService.updateDevice(inUse.id(), "New Name", null, DeviceState.AVAILABLE))
+                .expectError(DeviceUpdateException.class)
+                .verify();
+        
+        // Then
+        StepVerifier.create(deviceRepository.findById(inUse.id()))
+                .assertNext(device -> {
+                    assertThat(device.name()).isEqualTo("Device");
+                    assertThat(device.state()).isEqualTo(DeviceState.IN_USE);
+                })
+                .verifyComplete();
+    }
+    
     @Test
     @DisplayName("Should allow state update for device in use")
     void shouldAllowStateUpdateForDeviceInUse() {
@@ -234,5 +443,87 @@ class DeviceServiceIntegrationTest extends AbstractIntegrationTest {
                     e.getMessage().equals("Device not found"))
                 .verify();
     }
+    
+    @Test
+    @DisplayName("Should keep a slowly streamed import running past the OLTP statement timeout")
+    void shouldImportSlowStreamPastOltpStatementTimeout() {
+        // Given - the COPY statement stays open while devices trickle in for 2s, longer than the 1s OLTP timeout of the tests
+        Flux<Device> slowDevices = Flux.range(0, 10)
+                .delayElements(Duration.ofMillis(200))
+                .map(i -> new Device("Device " + i, "Slow Brand", null));
+        
+        // When / Then
+        StepVerifier.create(deviceService.importDevices(slowDevices))
+                .expectNext(10L)
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+    }
+    
+    @Test
+    @DisplayName("Should keep serving other operation families while one family's bulkhead is full")
+    void shouldIsolateOperationFamiliesInBulkheads() {
+        // Given
+        Device device = deviceService.createDevice("Test Device", "Test Brand").block();
+        
+        whileBulkheadIsFull("device-lists", () -> {
+            // When / Then - list pages are rejected right away
+            StepVerifier.create(deviceService.getAllDevicesSlice(0, 10))
+                    .expectError(BulkheadFullException.class)
+                    .verify();
+            
+            // Lookups, counts and writes still complete
+            StepVerifier.create(deviceService.getDeviceById(device.id()))
+                    .assertNext(found -> assertThat(found.id()).isEqualTo(device.id()))
+                    .verifyComplete();
+            StepVerifier.create(deviceService.countByBrand("Test Brand"))
+                    .expectNext(1L)
+                    .verifyComplete();
+            StepVerifier.create(deviceService.createDevice("Another Device", "Test Brand"))
+                    .assertNext(created -> assertThat(created.id()).isNotNull())
+                    .verifyComplete();
+        });
+        
+        // Then - the family serves again once its calls finish
+        StepVerifier.create(deviceService.getAllDevicesSlice(0, 10))
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+    
+    @Test
+    @DisplayName("Should keep single writes available while bulk writes fill the bulk bulkhead")
+    void shouldKeepSingleWritesAvailableWhileBulkIsFull() {
+        whileBulkheadIsFull("device-bulk", () -> {
+            // Batch creates and state transitions are bulk work and are rejected
+            StepVerifier.create(deviceService.createDevices(List.of(new Device("Batch Device", "Test Brand", null))))
+                    .expectError(BulkheadFullException.class)
+                    .verify();
+            StepVerifier.create(deviceService.transitionStates(List.of(1L), DeviceState.INACTIVE))
+                    .expectError(BulkheadFullException.class)
+                    .verify();
+            StepVerifier.create(deviceService.transitionStatesMatching("Test Brand", null, DeviceState.INACTIVE))
+                    .expectError(BulkheadFullException.class)
+                    .verify();
+            
+            // Single writes do not share their slots
+            StepVerifier.create(deviceService.createDevice("Single Device", "Test Brand"))
+                    .assertNext(device -> assertThat(device.name()).isEqualTo("Single Device"))
+                    .verifyComplete();
+        });
+    }
+    
+    // Takes every slot of a bulkhead, as that many in-flight calls would, for the duration of the assertions
+    private void whileBulkheadIsFull(String profile, Runnable assertions) {
+        Bulkhead bulkhead = bulkheadRegistry.bulkhead(profile);
+        int slots = bulkhead.getBulkheadConfig().getMaxConcurrentCalls();
+        for (int i = 0; i < slots; i++) {
+            assertThat(bulkhead.tryAcquirePermission()).isTrue();
+        }
+        try {
+            assertions.run();
+        } finally {
+            for (int i = 0; i < slots; i++) {
+                bulkhead.onComplete();
+            }
+        }
+    }
 }
-
@@ -0,0 +1,129 @@
+package com.rdpk.device.support;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("AdaptiveConcurrencyLimiter Tests")
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long BASELINE = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private AdaptiveConcurrencyLimiter limiter(boolean enabled, int initialLimit) {
+        return new AdaptiveConcurrencyLimiter(enabled, initialLimit, 2, 50, 1.5, 0.5, 100,
+                () -> new IllegalStateException("overloaded"), meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should reject operations over the limit and release permits when operations end")
+    void shouldRejectOverLimit() {
+        // Given - both permits held by operations that never complete
+        AdaptiveConcurrencyLimiter limiter = limiter(true, 2);
+        List<Disposable> running = IntStream.range(0, 2)
+                .mapToObj(i -> limiter.limit(Mono.never()).subscribe())
+                .toList();
+
+        // When / Then
+        StepVerifier.create(limiter.limit(Mono.just(1)))
+                .expectErrorMessage("overloaded")
+                .verify();
+        assertThat(meterRegistry.get("db.concurrency.rejections").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("db.concurrency.in.flight").gauge().value()).isEqualTo(2.0);
+
+        running.forEach(Disposable::dispose);
+        StepVerifier.create(limiter.limit(Mono.just(1)))
+                .expectNext(1)
+                .verifyComplete();
+        assertThat(meterRegistry.get("db.concurrency.in.flight").gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should grow the limit while latency stays at the baseline and shrink it when latency rises")
+    void shouldAdaptLimitToLatency() {
+        // Given - every permit in use, so the limit may grow
+        AdaptiveConcurrencyLimiter limiter = limiter(true, 10);
+        IntStream.range(0, 10).forEach(i -> limiter.tryAcquire());
+        limiter.sample(BASELINE);
+
+        // When - latency stays at the baseline
+        for (int i = 0; i < 5; i++) {
+            limiter.sample(BASELINE);
+        }
+
+        // Then
+        double grown = limiter.getLimit();
+        assertThat(grown).isGreaterThan(10.0);
+        assertThat(meterRegistry.get("db.concurrency.limit").gauge().value()).isEqualTo(grown);
+
+        // When - latency triples
+        for (int i = 0; i < 20; i++) {
+            limiter.sample(3 * BASELINE);
+        }
+
+        // Then
+        assertThat(limiter.getLimit()).isLessThan(grown).isGreaterThanOrEqualTo(2.0);
+    }
+
+    @Test
+    @DisplayName("Should measure cancelled operations only when they already ran slower than usual")
+    void shouldMeasureSlowCancellations() throws InterruptedException {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = limiter(true, 10);
+        limiter.sample(BASELINE);
+
+        // When - cancelled right away, e.g. by a client that went away
+        limiter.limit(Mono.never()).subscribe().dispose();
+
+        // Then
+        assertThat(limiter.getLimit()).isEqualTo(10.0);
+
+        // When - cancelled by a time limiter after running far past the baseline
+        Disposable timedOut = limiter.limit(Mono.never()).subscribe();
+        Thread.sleep(10 * TimeUnit.NANOSECONDS.toMillis(BASELINE));
+        timedOut.dispose();
+
+        // Then
+        assertThat(limiter.getLimit()).isLessThan(10.0);
+        assertThat(meterRegistry.get("db.concurrency.in.flight").gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should not grow the limit while less than half of it is in use")
+    void shouldNotGrowWhenUnderused() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = limiter(true, 10);
+        limiter.tryAcquire();
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            limiter.sample(BASELINE);
+        }
+
+        // Then
+        assertThat(limiter.getLimit()).isEqualTo(10.0);
+    }
+
+    @Test
+    @DisplayName("Should pass operations through when disabled")
+    void shouldPassThroughWhenDisabled() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = limiter(false, 2);
+        IntStream.range(0, 5).forEach(i -> limiter.limit(Mono.never()).subscribe());
+
+        // When / Then
+        StepVerifier.create(limiter.limit(Mono.just(1)))
+                .expectNext(1)
+                .verifyComplete();
+    }
+}
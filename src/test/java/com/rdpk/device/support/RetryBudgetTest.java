@@ -0,0 +1,160 @@
+package com.rdpk.device.support;
+
+import io.github.resilience4j.core.IntervalBiFunction;
+import io.github.resilience4j.core.functions.Either;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("RetryBudget Tests")
+class RetryBudgetTest {
+    
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-01-01T00:00:00Z"));
+    
+    @Test
+    @DisplayName("Should allow the fixed reserve without successes and count exhausted retries")
+    void shouldAllowReserveWithoutSuccesses() {
+        // Given - 1 retry per second over a 2 second window
+        RetryBudget budget = new RetryBudget(0.1, 1, Duration.ofSeconds(2), clock, meterRegistry);
+        
+        // When / Then
+        assertThat(budget.tryAcquire()).isTrue();
+        assertThat(budget.tryAcquire()).isTrue();
+        assertThat(budget.tryAcquire()).isFalse();
+        assertThat(meterRegistry.get("retry.budget.retries").tag("outcome", "allowed").counter().count())
+                .isEqualTo(2.0);
+        assertThat(meterRegistry.get("retry.budget.retries").tag("outcome", "exhausted").counter().count())
+                .isEqualTo(1.0);
+        assertThat(meterRegistry.get("retry.budget.available").gauge().value()).isZero();
+    }
+    
+    @Test
+    @DisplayName("Should earn retries from successful calls")
+    void shouldEarnRetriesFromSuccesses() {
+        // Given
+        RetryBudget budget = new RetryBudget(0.5, 0, Duration.ofSeconds(10), clock, meterRegistry);
+        
+        // When
+        for (int i = 0; i < 10; i++) {
+            budget.recordSuccess();
+        }
+        
+        // Then - half a retry per success
+        assertThat(budget.available()).isEqualTo(5.0);
+        for (int i = 0; i < 5; i++) {
+            assertThat(budget.tryAcquire()).isTrue();
+        }
+        assertThat(budget.tryAcquire()).isFalse();
+    }
+    
+    @Test
+    @DisplayName("Should only earn retries from calls that returned a result on their first attempt")
+    void shouldOnlyCreditFirstAttemptSuccesses() {
+        // Given
+        RetryBudget budget = new RetryBudget(1.0, 0, Duration.ofSeconds(10), clock, meterRegistry);
+        Retry retry = Retry.of("test", RetryConfig.custom()
+                .maxAttempts(3)
+                .waitDuration(Duration.ofMillis(1))
+                .build());
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<String> failsOnce = Mono.defer(() -> attempts.getAndIncrement() == 0
+                ? Mono.error(new IllegalStateException("connection reset"))
+                : Mono.just("retried"));
+        
+        // When
+        budget.retry(retry, Mono.just("first")).block();
+        budget.retry(retry, Flux.just("first", "second")).blockLast();
+        budget.retry(retry, failsOnce).block();
+        budget.retry(retry, Mono.empty()).block();
+        budget.retry(retry, Flux.empty()).blockLast();
+        
+        // Then - only the first two calls count
+        assertThat(attempts).hasValue(2);
+        assertThat(budget.available()).isEqualTo(2.0);
+    }
+    
+    @Test
+    @DisplayName("Should forget successes and retries that left the window")
+    void shouldSlideWindow() {
+        // Given - a reserve of 3 retries per 3 second window, spent at t=0
+        RetryBudget budget = new RetryBudget(1.0, 1, Duration.ofSeconds(3), clock, meterRegistry);
+        for (int i = 0; i < 3; i++) {
+            assertThat(budget.tryAcquire()).isTrue();
+        }
+        assertThat(budget.tryAcquire()).isFalse();
+        
+        // When - a success at t=1 earns one retry
+        clock.advance(Duration.ofSeconds(1));
+        budget.recordSuccess();
+        assertThat(budget.available()).isEqualTo(1.0);
+        
+        // Then - the retries leave the window at t=3, the success at t=4
+        clock.advance(Duration.ofSeconds(2));
+        assertThat(budget.available()).isEqualTo(4.0);
+        clock.advance(Duration.ofSeconds(1));
+        assertThat(budget.available()).isEqualTo(3.0);
+    }
+    
+    @Test
+    @DisplayName("Should wait a random time below the doubling bound and stop once the budget is spent")
+    void shouldBackOffWithFullJitter() {
+        // Given
+        RetryBudget budget = new RetryBudget(0.0, 50, Duration.ofSeconds(1), clock, meterRegistry);
+        IntervalBiFunction<Object> backoff = budget.backoff(Duration.ofMillis(100), Duration.ofMillis(300));
+        Either<Throwable, Object> failure = Either.left(new RuntimeException("connection refused"));
+        
+        // When / Then - bounds 100, 200, then capped at 300
+        for (int i = 0; i < 10; i++) {
+            assertThat(backoff.apply(1, failure)).isBetween(0L, 100L);
+            assertThat(backoff.apply(2, failure)).isBetween(0L, 200L);
+            assertThat(backoff.apply(5, failure)).isBetween(0L, 300L);
+        }
+        assertThat(backoff.apply(40, failure)).isBetween(0L, 300L);
+        for (int i = 0; i < 19; i++) {
+            backoff.apply(1, failure);
+        }
+        assertThat(backoff.apply(1, failure)).isEqualTo(-1L);
+    }
+    
+    private static final class MutableClock extends Clock {
+        
+        private Instant instant;
+        
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+        
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+        
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+        
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+        
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.rdpk.device.support;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("RoutingConnectionFactory Tests")
+class RoutingConnectionFactoryTest {
+    
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StubConnectionFactory primary = new StubConnectionFactory(false);
+    private final StubConnectionFactory bulk = new StubConnectionFactory(false);
+    private final StubConnectionFactory replica = new StubConnectionFactory(false);
+    private final CircuitBreaker circuitBreaker = CircuitBreaker.of("replica", CircuitBreakerConfig.custom()
+            .slidingWindowSize(2)
+            .minimumNumberOfCalls(2)
+            .build());
+    private final ReadRouting readRouting = new ReadRouting(true, Duration.ofMinutes(1));
+    private final RoutingConnectionFactory routing = routing(replica);
+    
+    @Test
+    @DisplayName("Should keep operations that are not marked as reads on the primary")
+    void shouldRouteUnmarkedOperationsToPrimary() {
+        // When
+        routing.create().block();
+        
+        // Then
+        assertThat(primary.connections).hasValue(1);
+        assertThat(replica.connections).hasValue(0);
+    }
+    
+    @Test
+    @DisplayName("Should route operations to the pool of their workload")
+    void shouldRouteByWorkload() {
+        // When
+        Workload.BULK.run(routing.create()).block();
+        Workload.QUERY.run(routing.create()).block();
+        
+        // Then - there is no primary query pool here, so query work uses the default pool
+        assertThat(bulk.connections).hasValue(1);
+        assertThat(primary.connections).hasValue(1);
+        assertThat(meterRegistry.get("r2dbc.pool.acquire").tag("name", "bulk").tag("outcome", "success").timer().count())
+                .isEqualTo(1);
+    }
+    
+    @Test
+    @DisplayName("Should keep bulk reads on the primary, which is the only database with a bulk pool")
+    void shouldKeepBulkReadsOnPrimary() {
+        // When
+        Workload.BULK.run(readRouting.read(routing.create())).block();
+        
+        // Then
+        assertThat(bulk.connections).hasValue(1);
+        assertThat(replica.connections).hasValue(0);
+    }
+    
+    @Test
+    @DisplayName("Should route reads to the replica")
+    void shouldRouteReadsToReplica() {
+        // When
+        readRouting.read(routing.create()).block();
+        
+        // Then
+        assertThat(replica.connections).hasValue(1);
+        assertThat(primary.connections).hasValue(0);
+        assertThat(meterRegistry.get("read.routing.connections").tag("target", "replica").counter().count())
+                .isEqualTo(1.0);
+    }
+    
+    @Test
+    @DisplayName("Should route reads of a client that just wrote to the primary")
+    void shouldPinClientAfterWrite() {
+        // Given
+        readRouting.recordWrite("client-a");
+        
+        // When
+        readRouting.read(routing.create())
+                .contextWrite(ctx -> ctx.put(ReadRouting.CLIENT_KEY, "client-a"))
+                .block();
+        readRouting.read(routing.create())
+                .contextWrite(ctx -> ctx.put(ReadRouting.CLIENT_KEY, "client-b"))
+                .block();
+        
+        // Then
+        assertThat(primary.connections).hasValue(1);
+        assertThat(replica.connections).hasValue(1);
+    }
+    
+    @Test
+    @DisplayName("Should fall back to the primary once replica connection failures open the circuit breaker")
+    void shouldFallBackToPrimaryWhenReplicaCircuitIsOpen() {
+        // Given
+        StubConnectionFactory failingReplica = new StubConnectionFactory(true);
+        RoutingConnectionFactory routing = routing(failingReplica);
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(readRouting.read(routing.create()))
+                    .expectErrorMessage("replica down")
+                    .verify();
+        }
+        
+        // When
+        readRouting.read(routing.create()).block();
+        
+        // Then
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(failingReplica.connections).hasValue(2);
+        assertThat(primary.connections).hasValue(1);
+    }
+    
+    @Test
+    @DisplayName("Should keep reads sharing a target on the database chosen for the first one")
+    void shouldKeepSharedTargetWhenClientWritesInBetween() {
+        // When - the client writes between the two reads, which would pin a new read to the primary
+        readRouting.sameTarget(readRouting.read(routing.create())
+                        .then(Mono.fromRunnable(() -> readRouting.recordWrite("client-a")))
+                        .then(readRouting.read(routing.create())))
+                .contextWrite(ctx -> ctx.put(ReadRouting.CLIENT_KEY, "client-a"))
+                .block();
+        
+        // Then
+        assertThat(replica.connections).hasValue(2);
+        assertThat(primary.connections).hasValue(0);
+    }
+    
+    @Test
+    @DisplayName("Should move reads sharing a target to the primary once one of them fell back to it")
+    void shouldFollowFallbackToPrimaryWithinSharedTarget() {
+        // When - the replica circuit is open for the first read only
+        readRouting.sameTarget(Mono.fromRunnable(circuitBreaker::transitionToForcedOpenState)
+                        .then(readRouting.read(routing.create()))
+                        .then(Mono.fromRunnable(circuitBreaker::transitionToClosedState))
+                        .then(readRouting.read(routing.create())))
+                .block();
+        
+        // Then
+        assertThat(primary.connections).hasValue(2);
+        assertThat(replica.connections).hasValue(0);
+    }
+    
+    @Test
+    @DisplayName("Should route every read to the primary when no replica is configured")
+    void shouldReadFromPrimaryWithoutReplica() {
+        // Given
+        ReadRouting withoutReplica = new ReadRouting(false, Duration.ofMinutes(1));
+        
+        // When
+        withoutReplica.read(routing.create()).block();
+        
+        // Then
+        assertThat(primary.connections).hasValue(1);
+        assertThat(replica.connections).hasValue(0);
+    }
+    
+    private RoutingConnectionFactory routing(ConnectionFactory replicaOltp) {
+        return new RoutingConnectionFactory(Map.of(
+                new RoutingConnectionFactory.Route(ReadRouting.Target.PRIMARY, Workload.OLTP), primary,
+                new RoutingConnectionFactory.Route(ReadRouting.Target.PRIMARY, Workload.BULK), bulk,
+                new RoutingConnectionFactory.Route(ReadRouting.Target.REPLICA, Workload.OLTP), replicaOltp
+        ), circuitBreaker, meterRegistry);
+    }
+    
+    /**
+     * Counts connection attempts; completes empty instead of opening a real connection.
+     */
+    private static class StubConnectionFactory implements ConnectionFactory {
+        
+        private final AtomicInteger connections = new AtomicInteger();
+        private final boolean failing;
+        
+        StubConnectionFactory(boolean failing) {
+            this.failing = failing;
+        }
+        
+        @Override
+        public Mono<Connection> create() {
+            return Mono.defer(() -> {
+                connections.incrementAndGet();
+                return failing ? Mono.error(new IllegalStateException("replica down")) : Mono.empty();
+            });
+        }
+        
+        @Override
+        public ConnectionFactoryMetadata getMetadata() {
+            return () -> "stub";
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.rdpk.device.support;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("SingleFlight Tests")
+class SingleFlightTest {
+    
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>("test", meterRegistry);
+    private final AtomicInteger loads = new AtomicInteger();
+    
+    private Mono<String> slowLoad(String value) {
+        return Mono.fromCallable(() -> {
+            loads.incrementAndGet();
+            return value;
+        }).delayElement(Duration.ofMillis(100));
+    }
+    
+    @Test
+    @DisplayName("Should share one load between concurrent callers of the same key")
+    void shouldShareConcurrentLoads() {
+        // When
+        StepVerifier.create(Flux.range(0, 10)
+                        .flatMap(i -> singleFlight.execute("key", () -> slowLoad("value"))))
+                .expectNextCount(10)
+                .verifyComplete();
+        
+        // Then
+        assertThat(loads).hasValue(1);
+        assertThat(meterRegistry.get("single.flight.deduplicated").counter().count()).isEqualTo(9.0);
+    }
+    
+    @Test
+    @DisplayName("Should load different keys independently")
+    void shouldNotShareLoadsOfDifferentKeys() {
+        // When
+        StepVerifier.create(Flux.merge(
+                        singleFlight.execute("a", () -> slowLoad("a")),
+                        singleFlight.execute("b", () -> slowLoad("b"))))
+                .expectNextCount(2)
+                .verifyComplete();
+        
+        // Then
+        assertThat(loads).hasValue(2);
+    }
+    
+    @Test
+    @DisplayName("Should load again once the previous load has completed")
+    void shouldNotReuseCompletedLoads() {
+        // When
+        singleFlight.execute("key", () -> slowLoad("first")).block();
+        String second = singleFlight.execute("key", () -> slowLoad("second")).block();
+        
+        // Then
+        assertThat(second).isEqualTo("second");
+        assertThat(loads).hasValue(2);
+    }
+    
+    @Test
+    @DisplayName("Should release the key after a failed load")
+    void shouldReleaseKeyAfterError() {
+        // When
+        StepVerifier.create(singleFlight.execute("key", () -> Mono.error(new IllegalStateException("boom"))))
+                .expectErrorMessage("boom")
+                .verify();
+        
+        // Then
+        StepVerifier.create(singleFlight.execute("key", () -> slowLoad("value")))
+                .expectNext("value")
+                .verifyComplete();
+    }
+}
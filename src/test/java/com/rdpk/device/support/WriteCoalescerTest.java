@@ -0,0 +1,159 @@
+package com.rdpk.device.support;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("WriteCoalescer Tests")
+class WriteCoalescerTest {
+    
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<List<Integer>> flushes = new CopyOnWriteArrayList<>();
+    private WriteCoalescer<Integer, String> coalescer;
+    
+    @AfterEach
+    void tearDown() {
+        coalescer.close();
+    }
+    
+    @Test
+    @DisplayName("Should flush concurrent submits together and complete each with its own result")
+    void shouldCoalesceConcurrentSubmits() {
+        // Given
+        coalescer = new WriteCoalescer<>("test", 10, Duration.ofMillis(50), items -> {
+            flushes.add(items);
+            return Flux.fromIterable(items).map(item -> "row-" + item);
+        }, meterRegistry);
+        
+        // When
+        List<String> results = Flux.range(0, 5)
+                .flatMap(i -> coalescer.submit(i).map(result -> i + ":" + result))
+                .collectList()
+                .block();
+        
+        // Then
+        assertThat(results).containsExactlyInAnyOrder("0:row-0", "1:row-1", "2:row-2", "3:row-3", "4:row-4");
+        assertThat(flushes).hasSize(1);
+        assertThat(meterRegistry.get("write.coalescer.batch.size").summary().max()).isEqualTo(5.0);
+        assertThat(meterRegistry.get("write.coalescer.queue.delay").timer().count()).isEqualTo(5);
+    }
+    
+    @Test
+    @DisplayName("Should split batches at the maximum batch size")
+    void shouldFlushWhenBatchIsFull() {
+        // Given
+        coalescer = new WriteCoalescer<>("test", 2, Duration.ofSeconds(10), items -> {
+            flushes.add(items);
+            return Flux.fromIterable(items).map(String::valueOf);
+        }, meterRegistry);
+        
+        // When
+        Flux.range(0, 4).flatMap(coalescer::submit).collectList().block(Duration.ofSeconds(5));
+        
+        // Then
+        assertThat(flushes).hasSize(2).allSatisfy(batch -> assertThat(batch).hasSize(2));
+    }
+    
+    @Test
+    @DisplayName("Should retry a failed batch item by item so only the bad item fails")
+    void shouldFallBackToSingleItemFlushes() {
+        // Given
+        coalescer = new WriteCoalescer<>("test", 10, Duration.ofMillis(50), items -> {
+            flushes.add(items);
+            return items.contains(2)
+                    ? Flux.error(new IllegalStateException("insert failed"))
+                    : Flux.fromIterable(items).map(String::valueOf);
+        }, meterRegistry);
+        
+        // When
+        List<String> results = Flux.range(0, 4)
+                .flatMap(i -> coalescer.submit(i).onErrorResume(e -> Mono.just(i + ":" + e.getMessage())))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+        
+        // Then
+        assertThat(results).containsExactlyInAnyOrder("0", "1", "2:insert failed", "3");
+        assertThat(flushes).hasSize(5);
+    }
+    
+    @Test
+    @DisplayName("Should fail the caller of a single-item flush that fails and keep serving later batches")
+    void shouldPropagateFlushErrors() {
+        // Given
+        coalescer = new WriteCoalescer<>("test", 10, Duration.ofMillis(10), items -> items.contains(1)
+                ? Flux.error(new IllegalStateException("insert failed"))
+                : Flux.fromIterable(items).map(item -> "row-" + item), meterRegistry);
+        
+        // When & Then
+        StepVerifier.create(coalescer.submit(1))
+                .expectErrorMessage("insert failed")
+                .verify(Duration.ofSeconds(5));
+        StepVerifier.create(coalescer.submit(2))
+                .expectNext("row-2")
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+    }
+    
+    @Test
+    @DisplayName("Should complete every submit while all flush slots are busy with slow flushes")
+    void shouldQueueBatchesWhileFlushesAreSlow() {
+        // Given - flushes take 10x the batching delay
+        coalescer = new WriteCoalescer<>("test", 2, Duration.ofMillis(10), items -> {
+            flushes.add(items);
+            return Flux.fromIterable(items).map(String::valueOf).delaySubscription(Duration.ofMillis(100));
+        }, meterRegistry);
+        
+        // When - far more submits than 4 flush slots of 2 items each, arriving while batches time out
+        List<String> results = Flux.range(0, 200)
+                .delayElements(Duration.ofMillis(5))
+                .flatMap(coalescer::submit)
+                .collectList()
+                .block(Duration.ofSeconds(20));
+        
+        // Then
+        assertThat(results).hasSize(200);
+        assertThat(flushes.stream().mapToInt(List::size).sum()).isEqualTo(200);
+    }
+    
+    @Test
+    @DisplayName("Should not write items whose caller cancelled before their batch was flushed")
+    void shouldDropCancelledSubmits() {
+        // Given
+        coalescer = new WriteCoalescer<>("test", 10, Duration.ofMillis(200), items -> {
+            flushes.add(items);
+            return Flux.fromIterable(items).map(String::valueOf);
+        }, meterRegistry);
+        
+        // When - the first caller gives up, e.g. its time limiter fired
+        coalescer.submit(1).subscribe().dispose();
+        String result = coalescer.submit(2).block(Duration.ofSeconds(5));
+        
+        // Then
+        assertThat(result).isEqualTo("2");
+        assertThat(flushes).containsExactly(List.of(2));
+    }
+    
+    @Test
+    @DisplayName("Should fail submits right away once closed instead of leaving them pending")
+    void shouldRejectSubmitsAfterClose() {
+        // Given
+        coalescer = new WriteCoalescer<>("test", 10, Duration.ofMillis(10),
+                items -> Flux.fromIterable(items).map(String::valueOf), meterRegistry);
+        coalescer.close();
+        
+        // When & Then
+        StepVerifier.create(coalescer.submit(1))
+                .expectErrorMessage("Write coalescer is not accepting items")
+                .verify(Duration.ofSeconds(1));
+    }
+}